@@ -0,0 +1,74 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a {@link MappingTreeRemapper} from named to intermediary on a synthetic tree,
+ * with and without namespace completion. Like in Yarn, some elements have no named names,
+ * so completion has names to fill in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingTreeRemapperBuildBenchmark {
+    @Param("10000")
+    public int classCount;
+
+    private MemoryMappingTree tree;
+
+    @Setup
+    public void setup() {
+        tree = SyntheticMappings.create(classCount, 0);
+    }
+
+    private MappingTreeRemapper.Builder builder() {
+        return MappingTreeRemapper.builder(tree).namespaces(SyntheticMappings.NAMED, SyntheticMappings.INTERMEDIARY);
+    }
+
+    @Benchmark
+    public MappingTreeRemapper build() {
+        return builder().build();
+    }
+
+    @Benchmark
+    public MappingTreeRemapper buildCompleting() {
+        return builder().completeNamespaces().build();
+    }
+
+    @Benchmark
+    public MappingTreeRemapper buildLazilyCompleting() {
+        return builder().completeNamespaces().lazyCompletion(true).build();
+    }
+
+    @Benchmark
+    public MappingTreeRemapper buildPrecomputed() {
+        return builder().precompute().build();
+    }
+
+    @Benchmark
+    public MappingTreeRemapper buildCompletingPrecomputed() {
+        return builder().completeNamespaces().precompute().build();
+    }
+}
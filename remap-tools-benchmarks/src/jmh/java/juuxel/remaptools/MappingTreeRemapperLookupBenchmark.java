@@ -0,0 +1,131 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures class, method and field lookups of {@link MappingTreeRemapper} to named on a synthetic tree.
+ *
+ * <p>The lookups are sampled from the tree, with about a tenth of them missing from the mappings.
+ * They are made both from the source namespace of the tree (official) and from a destination namespace
+ * (intermediary), which the tree doesn't index by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingTreeRemapperLookupBenchmark {
+    @Param("10000")
+    public int classCount;
+
+    @Param("10000")
+    public int lookupCount;
+
+    @Param({ SyntheticMappings.OFFICIAL, SyntheticMappings.INTERMEDIARY })
+    public String from;
+
+    @Param({ "tree", "precomputed" })
+    public String lookup;
+
+    private MappingTreeRemapper remapper;
+    private String[] classes;
+    private Member[] methods;
+    private Member[] fields;
+
+    @Setup
+    public void setup() {
+        MemoryMappingTree tree = SyntheticMappings.create(classCount, 0);
+        var builder = MappingTreeRemapper.builder(tree).namespaces(from, SyntheticMappings.NAMED);
+        if (lookup.equals("precomputed")) builder.precompute();
+        remapper = builder.build();
+
+        Random random = new Random(1);
+        int ns = tree.getNamespaceId(from);
+        List<? extends MappingTreeView.ClassMappingView> treeClasses = new ArrayList<>(tree.getClasses());
+        classes = new String[lookupCount];
+        List<Member> methodList = new ArrayList<>(lookupCount);
+        List<Member> fieldList = new ArrayList<>(lookupCount);
+
+        for (int i = 0; i < lookupCount; i++) {
+            var owner = treeClasses.get(random.nextInt(treeClasses.size()));
+            boolean miss = random.nextInt(10) == 0;
+            classes[i] = miss ? "java/lang/Object" : owner.getName(ns);
+        }
+
+        while (methodList.size() < lookupCount || fieldList.size() < lookupCount) {
+            var owner = treeClasses.get(random.nextInt(treeClasses.size()));
+            String ownerName = owner.getName(ns);
+
+            if (methodList.size() < lookupCount && !owner.getMethods().isEmpty()) {
+                var method = List.copyOf(owner.getMethods()).get(random.nextInt(owner.getMethods().size()));
+                String name = random.nextInt(10) == 0 ? "toString" : method.getName(ns);
+                methodList.add(new Member(ownerName, name, tree.mapDesc(method.getSrcDesc(), ns)));
+            }
+
+            if (fieldList.size() < lookupCount && !owner.getFields().isEmpty()) {
+                var field = List.copyOf(owner.getFields()).get(random.nextInt(owner.getFields().size()));
+                String name = random.nextInt(10) == 0 ? "missing" : field.getName(ns);
+                fieldList.add(new Member(ownerName, name, tree.mapDesc(field.getSrcDesc(), ns)));
+            }
+        }
+
+        methods = methodList.toArray(Member[]::new);
+        fields = fieldList.toArray(Member[]::new);
+    }
+
+    @Benchmark
+    public void mapClass(Blackhole blackhole) {
+        for (String name : classes) {
+            blackhole.consume(remapper.map(name));
+        }
+    }
+
+    @Benchmark
+    public void mapMethodName(Blackhole blackhole) {
+        for (Member method : methods) {
+            blackhole.consume(remapper.mapMethodName(method.owner, method.name, method.descriptor));
+        }
+    }
+
+    @Benchmark
+    public void mapFieldName(Blackhole blackhole) {
+        for (Member field : fields) {
+            blackhole.consume(remapper.mapFieldName(field.owner, field.name, field.descriptor));
+        }
+    }
+
+    @Benchmark
+    public void mapMethodDesc(Blackhole blackhole) {
+        for (Member method : methods) {
+            blackhole.consume(remapper.mapMethodDesc(method.descriptor));
+        }
+    }
+
+    private record Member(String owner, String name, String descriptor) {
+    }
+}
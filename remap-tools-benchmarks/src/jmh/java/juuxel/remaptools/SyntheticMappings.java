@@ -0,0 +1,124 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic mapping trees that resemble Minecraft mappings.
+ *
+ * <p>The trees have the namespaces {@code official → intermediary, named}. Official names are short
+ * obfuscated names, and a fraction of the classes and members have no named name, like unmapped
+ * elements in Yarn. The same seed always produces the same tree.
+ */
+public final class SyntheticMappings {
+    public static final String OFFICIAL = "official";
+    public static final String INTERMEDIARY = "intermediary";
+    public static final String NAMED = "named";
+
+    private static final String[] PRIMITIVES = { "I", "J", "Z", "F", "D", "B" };
+
+    private SyntheticMappings() {
+    }
+
+    /**
+     * Generates a mapping tree.
+     *
+     * @param classCount the number of classes
+     * @param seed       the random seed
+     * @return the generated tree
+     */
+    public static MemoryMappingTree create(int classCount, long seed) {
+        Random random = new Random(seed);
+        MemoryMappingTree tree = new MemoryMappingTree();
+        tree.visitNamespaces(OFFICIAL, List.of(INTERMEDIARY, NAMED));
+        int methodId = 0;
+        int fieldId = 0;
+
+        for (int i = 0; i < classCount; i++) {
+            tree.visitClass(officialClassName(i));
+            tree.visitDstName(MappedElementKind.CLASS, 0, "net/minecraft/class_" + i);
+            if (random.nextInt(10) != 0) {
+                tree.visitDstName(MappedElementKind.CLASS, 1, "net/minecraft/pkg" + (i % 50) + "/Named" + i);
+            }
+
+            int fieldCount = random.nextInt(8);
+            for (int j = 0; j < fieldCount; j++) {
+                tree.visitField(obfuscatedName(j), fieldDescriptor(random, classCount));
+                tree.visitDstName(MappedElementKind.FIELD, 0, "field_" + fieldId++);
+                if (random.nextInt(5) != 0) tree.visitDstName(MappedElementKind.FIELD, 1, "namedField" + j);
+            }
+
+            int methodCount = random.nextInt(16);
+            for (int j = 0; j < methodCount; j++) {
+                tree.visitMethod(obfuscatedName(j), methodDescriptor(random, classCount));
+                tree.visitDstName(MappedElementKind.METHOD, 0, "method_" + methodId++);
+                if (random.nextInt(5) != 0) tree.visitDstName(MappedElementKind.METHOD, 1, "namedMethod" + j);
+            }
+        }
+
+        tree.visitEnd();
+        return tree;
+    }
+
+    /**
+     * {@return the official name of the class with the specified index}
+     *
+     * @param index the class index
+     */
+    public static String officialClassName(int index) {
+        return obfuscatedName(index);
+    }
+
+    /**
+     * {@return the names of all classes in a namespace, falling back to source names}
+     *
+     * @param tree      the tree
+     * @param namespace the namespace
+     */
+    public static String[] classNames(MappingTreeView tree, String namespace) {
+        int ns = tree.getNamespaceId(namespace);
+        return tree.getClasses().stream()
+            .map(c -> c.getName(ns) != null ? c.getName(ns) : c.getSrcName())
+            .toArray(String[]::new);
+    }
+
+    private static String obfuscatedName(int index) {
+        StringBuilder sb = new StringBuilder();
+
+        do {
+            sb.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+
+        return sb.toString();
+    }
+
+    private static String fieldDescriptor(Random random, int classCount) {
+        return random.nextBoolean() ? PRIMITIVES[random.nextInt(PRIMITIVES.length)] : classDescriptor(random, classCount);
+    }
+
+    private static String methodDescriptor(Random random, int classCount) {
+        StringBuilder sb = new StringBuilder("(");
+        int argCount = random.nextInt(4);
+        for (int i = 0; i < argCount; i++) sb.append(fieldDescriptor(random, classCount));
+        sb.append(')');
+        sb.append(random.nextInt(3) == 0 ? "V" : fieldDescriptor(random, classCount));
+        return sb.toString();
+    }
+
+    private static String classDescriptor(Random random, int classCount) {
+        // Mostly Minecraft classes, sometimes JDK classes that aren't in the mappings.
+        if (random.nextInt(4) == 0) return "Ljava/lang/String;";
+        return "L" + officialClassName(random.nextInt(classCount)) + ";";
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.refmap;
+
+import juuxel.remaptools.MappingTreeRemapper;
+import juuxel.remaptools.SyntheticMappings;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.objectweb.asm.commons.Remapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading, writing and remapping large synthetic refmaps.
+ *
+ * <p>The refmaps refer to named elements of a synthetic tree and are remapped to intermediary,
+ * in memory with {@link Refmap#remap(Set, boolean, Remapper)}, sequentially and in parallel,
+ * and with {@link StreamingRefmapRemapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefmapBenchmark {
+    @Param("10000")
+    public int classCount;
+
+    @Param("1000")
+    public int mixinCount;
+
+    @Param("20")
+    public int entriesPerMixin;
+
+    private Refmap refmap;
+    private String json;
+    private Remapper remapper;
+
+    @Setup
+    public void setup() throws IOException {
+        MemoryMappingTree tree = SyntheticMappings.create(classCount, 0);
+        refmap = SyntheticRefmaps.create(tree, SyntheticMappings.NAMED, mixinCount, entriesPerMixin, 0);
+        remapper = MappingTreeRemapper.builder(tree)
+            .namespaces(SyntheticMappings.NAMED, SyntheticMappings.INTERMEDIARY)
+            .precompute()
+            .build();
+
+        StringBuilder sb = new StringBuilder();
+        refmap.write(sb);
+        json = sb.toString();
+    }
+
+    @Benchmark
+    public Refmap read() {
+        return Refmap.read(new StringReader(json));
+    }
+
+    @Benchmark
+    public StringBuilder write() throws IOException {
+        StringBuilder sb = new StringBuilder(json.length());
+        refmap.write(sb);
+        return sb;
+    }
+
+    @Benchmark
+    public Refmap remap() {
+        return refmap.remap(Set.of(SyntheticRefmaps.ENVIRONMENT), true, remapper);
+    }
+
+    @Benchmark
+    public Refmap remapParallel() {
+        return refmap.remap(Set.of(SyntheticRefmaps.ENVIRONMENT), true, remapper, Refmap.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    @Benchmark
+    public Refmap readRemapWrite() throws IOException {
+        Refmap remapped = Refmap.read(new StringReader(json)).remap(Set.of(SyntheticRefmaps.ENVIRONMENT), true, remapper);
+        remapped.write(new StringBuilder(json.length()));
+        return remapped;
+    }
+
+    @Benchmark
+    public StringWriter streamingRemap() throws IOException {
+        StringWriter writer = new StringWriter(json.length());
+        new StreamingRefmapRemapper(remapper, Set.of(SyntheticRefmaps.ENVIRONMENT), true).remap(new StringReader(json), writer);
+        return writer;
+    }
+}
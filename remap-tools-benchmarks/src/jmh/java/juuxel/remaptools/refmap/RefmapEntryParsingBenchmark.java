@@ -0,0 +1,91 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.refmap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the refmap entry parser with the regex-based parser it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefmapEntryParsingBenchmark {
+    private static final Pattern FIELD_PATTERN = Pattern.compile("(?:L([^;]+);)?(.+):(.+)");
+    private static final Pattern METHOD_PATTERN = Pattern.compile("(?:L([^;]+);)?(.+)(\\(.*\\).+)");
+
+    @Param("10000")
+    public int entryCount;
+
+    private String[] entries;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        entries = new String[entryCount];
+
+        for (int i = 0; i < entryCount; i++) {
+            String owner = "net/minecraft/class_" + random.nextInt(5000);
+
+            entries[i] = switch (random.nextInt(3)) {
+                case 0 -> owner;
+                case 1 -> "L" + owner + ";field_" + random.nextInt(20000) + ":Lnet/minecraft/class_" + random.nextInt(5000) + ";";
+                default -> "L" + owner + ";method_" + random.nextInt(20000) + "(ILnet/minecraft/class_" + random.nextInt(5000) + ";)V";
+            };
+        }
+    }
+
+    @Benchmark
+    public void scanner(Blackhole blackhole) {
+        for (String entry : entries) {
+            blackhole.consume(RefmapEntryAdapter.parse(entry));
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String entry : entries) {
+            blackhole.consume(parseWithRegex(entry));
+        }
+    }
+
+    private static RefmapEntry parseWithRegex(String input) {
+        if (input.contains(":")) {
+            var matcher = FIELD_PATTERN.matcher(input);
+            if (matcher.matches()) {
+                return new RefmapEntry.FieldEntry(matcher.group(1), matcher.group(2), matcher.group(3));
+            }
+        }
+
+        if (input.contains("(")) {
+            var matcher = METHOD_PATTERN.matcher(input);
+            if (matcher.matches()) {
+                return new RefmapEntry.MethodEntry(matcher.group(1), matcher.group(2), matcher.group(3));
+            }
+        }
+
+        return new RefmapEntry.ClassEntry(input);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.refmap;
+
+import net.fabricmc.mappingio.tree.MappingTreeView;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic Mixin refmaps that refer to the elements of a mapping tree.
+ */
+public final class SyntheticRefmaps {
+    /**
+     * The environment in {@link Refmap#data()} that the generated refmaps contain.
+     */
+    public static final String ENVIRONMENT = "named:intermediary";
+
+    private SyntheticRefmaps() {
+    }
+
+    /**
+     * Generates a refmap with the same entries in the default mappings and in the {@link #ENVIRONMENT} data.
+     *
+     * @param tree            the mapping tree to take the names from
+     * @param namespace       the namespace of the entries
+     * @param mixinCount      the number of mixins
+     * @param entriesPerMixin the number of entries in each mixin
+     * @param seed            the random seed
+     * @return the generated refmap
+     */
+    public static Refmap create(MappingTreeView tree, String namespace, int mixinCount, int entriesPerMixin, long seed) {
+        Random random = new Random(seed);
+        int ns = tree.getNamespaceId(namespace);
+        List<? extends MappingTreeView.ClassMappingView> classes = new ArrayList<>(tree.getClasses());
+        Map<String, Map<String, RefmapEntry>> mixins = new LinkedHashMap<>();
+
+        for (int i = 0; i < mixinCount; i++) {
+            Map<String, RefmapEntry> entries = new LinkedHashMap<>();
+
+            for (int j = 0; j < entriesPerMixin; j++) {
+                var owner = classes.get(random.nextInt(classes.size()));
+                String ownerName = getName(owner, ns);
+                RefmapEntry entry;
+
+                if (random.nextInt(4) == 0 || owner.getMethods().isEmpty() && owner.getFields().isEmpty()) {
+                    entry = new RefmapEntry.ClassEntry(ownerName);
+                } else if (owner.getFields().isEmpty() || !owner.getMethods().isEmpty() && random.nextInt(3) != 0) {
+                    var method = List.copyOf(owner.getMethods()).get(random.nextInt(owner.getMethods().size()));
+                    entry = new RefmapEntry.MethodEntry(ownerName, getName(method, ns), tree.mapDesc(method.getSrcDesc(), ns));
+                } else {
+                    var field = List.copyOf(owner.getFields()).get(random.nextInt(owner.getFields().size()));
+                    entry = new RefmapEntry.FieldEntry(ownerName, getName(field, ns), tree.mapDesc(field.getSrcDesc(), ns));
+                }
+
+                entries.put("target" + j + ":" + RefmapEntryAdapter.format(entry), entry);
+            }
+
+            mixins.put("com/example/mixin/Mixin" + i, entries);
+        }
+
+        return new Refmap(mixins, Map.of(ENVIRONMENT, mixins));
+    }
+
+    private static String getName(MappingTreeView.ElementMappingView element, int ns) {
+        String name = element.getName(ns);
+        return name != null ? name : element.getSrcName();
+    }
+}
@@ -7,6 +7,8 @@
 package juuxel.remaptools.gradle.loom.internal;
 
 import juuxel.remaptools.gradle.MappingConfiguration;
+import juuxel.remaptools.gradle.internal.Hashing;
+import juuxel.remaptools.gradle.internal.MappingCache;
 import net.fabricmc.loom.api.mappings.layered.MappingContext;
 import net.fabricmc.loom.configuration.providers.mappings.GradleMappingContext;
 import net.fabricmc.loom.configuration.providers.mappings.LayeredMappingSpec;
@@ -17,7 +19,17 @@ import org.gradle.api.provider.Property;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.util.List;
 
+/**
+ * A mapping configuration backed by a Loom layered mapping spec.
+ *
+ * <p>Resolved mappings are stored in the {@linkplain MappingCache mapping cache}, keyed by
+ * the spec version and the Minecraft version, so each spec is only resolved once. The cache keeps
+ * comments and metadata, so javadoc from layers such as Parchment is the same whether the tree was
+ * resolved or read from the cache.
+ * Within a daemon, the trees are also shared through the task input by {@code MappingTreeService}.
+ */
 public abstract class LayeredMappingConfiguration implements MappingConfiguration {
     @Inject
     protected abstract Project getProject();
@@ -27,13 +39,31 @@ public abstract class LayeredMappingConfiguration implements MappingConfiguratio
     @Override
     public MemoryMappingTree readMappings() throws IOException {
         var spec = getSpec().get();
-        MappingContext context = new GradleMappingContext(getProject(), spec.getVersion().replace("+", "_").replace(".", "_"));
+        MappingContext context = createContext(spec);
+        String cacheKey = computeCacheKey(spec, context);
+        MappingCache cache = MappingCache.get(getProject().getGradle());
+        MemoryMappingTree cached = cache.read(cacheKey);
+        if (cached != null) return cached;
+
         LayeredMappingsProcessor processor = new LayeredMappingsProcessor(spec);
-        return processor.getMappings(processor.resolveLayers(context));
+        MemoryMappingTree tree = processor.getMappings(processor.resolveLayers(context));
+        cache.write(cacheKey, tree);
+        return tree;
+    }
+
+    private MappingContext createContext(LayeredMappingSpec spec) {
+        return new GradleMappingContext(getProject(), spec.getVersion().replace("+", "_").replace(".", "_"));
+    }
+
+    private static String computeCacheKey(LayeredMappingSpec spec, MappingContext context) {
+        // Layers such as the official Mojang mappings depend on the Minecraft version,
+        // which isn't part of the spec version.
+        return Hashing.fingerprint(List.of("layered", spec.getVersion(), context.minecraftVersion()));
     }
 
     @Override
     public Object asTaskInput() {
-        return getSpec().get().getVersion();
+        var spec = getSpec().get();
+        return spec.getVersion() + "/" + createContext(spec).minecraftVersion();
     }
 }
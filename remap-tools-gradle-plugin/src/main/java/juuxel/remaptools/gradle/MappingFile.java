@@ -6,6 +6,7 @@
 
 package juuxel.remaptools.gradle;
 
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.resources.TextResource;
 import org.jetbrains.annotations.ApiStatus;
@@ -32,6 +33,15 @@ public abstract class MappingFile {
      */
     public abstract Property<TextResource> getMappings();
 
+    /**
+     * Returns the input mapping file. If present, it is used instead of the {@linkplain #getMappings() mapping text}.
+     *
+     * <p>The file is read as UTF-8 and memory-mapped, which avoids reading large mapping files into memory.
+     *
+     * @return the input mapping file
+     */
+    public abstract RegularFileProperty getMappingsFile();
+
     /**
      * {@return the source namespace to be used if absent from the file}
      */
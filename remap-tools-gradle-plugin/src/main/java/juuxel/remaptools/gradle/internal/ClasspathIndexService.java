@@ -0,0 +1,228 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A build service that caches classpath jars as class index jars.
+ *
+ * <p>A class index jar only contains the class headers and member declarations of a classpath jar,
+ * without any code, debug information or resources. Its entries are stored uncompressed.
+ * That's everything tiny-remapper needs from the classpath, and it's much faster to read.
+ *
+ * <p>Index jars are stored on disk keyed by the SHA-256 hash of their source jar. The hashes of
+ * source jars are remembered by their path, size and modification time in a static field,
+ * so unchanged jars don't even need to be hashed again in the same daemon. Since the key determines
+ * the contents, an existing index jar is never replaced. Index jars that haven't been used for
+ * {@value #MAX_UNUSED_DAYS} days are deleted when new ones are written.
+ *
+ * <p>Unchanged classpath jars are cheaper to remap against, but not free: tiny-remapper still reads
+ * the index jars on every run. It can't be given an already parsed class index, and remapping
+ * may run in isolated worker processes that can't share one with the daemon.
+ */
+public abstract class ClasspathIndexService implements BuildService<ClasspathIndexService.Parameters> {
+    private static final String NAME = "remapToolsClasspathIndex";
+    private static final int MAX_UNUSED_DAYS = 30;
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final Map<Path, IndexedJar> INDEXED_JARS = new ConcurrentHashMap<>();
+
+    /**
+     * Registers this service if it's not already registered.
+     *
+     * @param gradle the current Gradle build
+     * @return the service provider
+     */
+    public static Provider<ClasspathIndexService> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(NAME, ClasspathIndexService.class,
+            spec -> spec.getParameters().getCacheDirectory().set(new File(gradle.getGradleUserHomeDir(), "caches/remap-tools/classpath")));
+    }
+
+    /**
+     * Replaces the jars on a classpath with their class index jars.
+     * Directories and other non-jar files are returned as is.
+     *
+     * @param classpath the classpath
+     * @return the indexed classpath
+     */
+    public Path[] index(Path[] classpath) throws IOException {
+        Path directory = getParameters().getCacheDirectory().get().getAsFile().toPath();
+        Path[] result = new Path[classpath.length];
+
+        for (int i = 0; i < classpath.length; i++) {
+            Path path = classpath[i];
+            result[i] = isJar(path) ? index(directory, path.toAbsolutePath()) : path;
+        }
+
+        return result;
+    }
+
+    private static boolean isJar(Path path) {
+        String name = path.getFileName().toString();
+        return Files.isRegularFile(path) && (name.endsWith(".jar") || name.endsWith(".zip"));
+    }
+
+    private static Path index(Path directory, Path jar) throws IOException {
+        long size = Files.size(jar);
+        long lastModified = Files.getLastModifiedTime(jar).toMillis();
+        IndexedJar indexed = INDEXED_JARS.get(jar);
+
+        if (indexed != null && indexed.size() == size && indexed.lastModified() == lastModified && Files.exists(indexed.index())) {
+            markUsed(indexed.index());
+            return indexed.index();
+        }
+
+        Path index = directory.resolve(hash(jar) + JAR_SUFFIX);
+
+        if (Files.exists(index)) {
+            markUsed(index);
+        } else {
+            writeIndex(jar, index);
+            deleteUnused(directory);
+        }
+
+        INDEXED_JARS.put(jar, new IndexedJar(size, lastModified, index));
+        return index;
+    }
+
+    private static void markUsed(Path index) {
+        try {
+            Files.setLastModifiedTime(index, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // Only affects when the index jar is deleted.
+        }
+    }
+
+    /**
+     * Deletes index jars that haven't been used recently.
+     */
+    private static void deleteUnused(Path directory) throws IOException {
+        Instant threshold = Instant.now().minus(Duration.ofDays(MAX_UNUSED_DAYS));
+
+        try (DirectoryStream<Path> indices = Files.newDirectoryStream(directory, "*" + JAR_SUFFIX)) {
+            for (Path index : indices) {
+                if (Files.getLastModifiedTime(index).toInstant().isBefore(threshold)) {
+                    try {
+                        Files.deleteIfExists(index);
+                    } catch (IOException e) {
+                        // Still in use, for example by a worker on Windows.
+                    }
+                }
+            }
+        }
+    }
+
+    private static String hash(Path jar) throws IOException {
+        MessageDigest digest = Hashing.newDigest();
+
+        try (InputStream in = new DigestInputStream(Files.newInputStream(jar), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        return Hashing.toHex(digest);
+    }
+
+    private static void writeIndex(Path jar, Path index) throws IOException {
+        Files.createDirectories(index.getParent());
+        Path temp = Files.createTempFile(index.getParent(), index.getFileName().toString(), ".tmp");
+
+        try {
+            try (ZipFile zip = new ZipFile(jar.toFile());
+                 ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                var entries = zip.entries();
+
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    byte[] bytes;
+
+                    if (entry.isDirectory()) {
+                        continue;
+                    } else if (name.endsWith(CLASS_SUFFIX)) {
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            bytes = strip(in.readAllBytes());
+                        }
+                    } else if (name.equals(MANIFEST)) {
+                        // Kept for multi-release jar detection.
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            bytes = in.readAllBytes();
+                        }
+                    } else {
+                        continue;
+                    }
+
+                    CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    ZipEntry stored = new ZipEntry(name);
+                    stored.setMethod(ZipEntry.STORED);
+                    stored.setSize(bytes.length);
+                    stored.setCompressedSize(bytes.length);
+                    stored.setCrc(crc.getValue());
+                    out.putNextEntry(stored);
+                    out.write(bytes);
+                    out.closeEntry();
+                }
+            }
+
+            try {
+                // Within the same directory, this is a rename that never replaces the target,
+                // which could be open in another daemon and couldn't be replaced on Windows.
+                Files.move(temp, index);
+            } catch (FileAlreadyExistsException e) {
+                // Written concurrently with the same contents.
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] strip(byte[] bytes) {
+        ClassReader reader = new ClassReader(bytes);
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(writer, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return writer.toByteArray();
+    }
+
+    public interface Parameters extends BuildServiceParameters {
+        /**
+         * {@return the directory where class index jars are stored}
+         */
+        DirectoryProperty getCacheDirectory();
+    }
+
+    private record IndexedJar(long size, long lastModified, Path index) {
+    }
+}
@@ -16,20 +16,33 @@ import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
 import net.fabricmc.mappingio.format.MappingFormat;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 import org.gradle.api.Action;
+import org.gradle.api.Project;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ProviderFactory;
-import org.gradle.api.resources.TextResource;
 
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class FileMappingConfigurationInternal implements FileMappingConfiguration {
+    private static final Map<Path, FileHash> FILE_HASHES = new ConcurrentHashMap<>();
+
     @Inject
     protected abstract ObjectFactory getObjectFactory();
     @Inject
     protected abstract ProviderFactory getProviderFactory();
+    @Inject
+    protected abstract Project getProject();
 
     public void mappingFile(Action<? super MappingFile> action) {
         getMappingFiles().add(getProviderFactory().provider(() -> {
@@ -41,49 +54,163 @@ public abstract class FileMappingConfigurationInternal implements FileMappingCon
 
     @Override
     public MemoryMappingTree readMappings() throws IOException {
+        List<MappingFile> mappingFiles = getMappingFiles().get();
+        String cacheKey = computeCacheKey(mappingFiles);
+        MappingCache cache = MappingCache.get(getProject().getGradle());
+        MemoryMappingTree cached = cache.read(cacheKey);
+        if (cached != null) return cached;
+
+        List<MappingInput> inputs = new ArrayList<>(mappingFiles.size());
+
+        for (MappingFile mappingFile : mappingFiles) {
+            inputs.add(new MappingInput(
+                MappingContents.read(mappingFile),
+                mappingFile.getDefaultSourceNamespace().get(),
+                mappingFile.getDefaultTargetNamespace().get(),
+                mappingFile.getMergeNamespace().get()
+            ));
+        }
+
+        MemoryMappingTree tree = read(inputs);
+        cache.write(cacheKey, tree);
+        return tree;
+    }
+
+    /**
+     * Parses mapping files in parallel and merges them in order. The result is the same as reading
+     * the files one by one into a tree that's switched to each file's merge namespace when it differs
+     * from the previous file's.
+     *
+     * @param inputs the mapping files
+     * @return the merged mappings
+     */
+    static MemoryMappingTree read(List<MappingInput> inputs) throws IOException {
+        List<CompletableFuture<MemoryMappingTree>> parsedTrees = new ArrayList<>(inputs.size());
+
+        for (MappingInput input : inputs) {
+            parsedTrees.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return parse(input.contents(), input.defaultSourceNamespace(), input.defaultTargetNamespace());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+
         MemoryMappingTree tree = new MemoryMappingTree();
         String currentNamespace = null;
 
-        for (MappingFile mappingFile : getMappingFiles().get()) {
-            var mergeNamespace = mappingFile.getMergeNamespace().get();
-            if (currentNamespace == null || !currentNamespace.equals(mergeNamespace)) {
+        for (int i = 0; i < inputs.size(); i++) {
+            MemoryMappingTree parsed = join(parsedTrees.get(i));
+            parsedTrees.set(i, null);
+
+            var mergeNamespace = inputs.get(i).mergeNamespace();
+            if (!mergeNamespace.equals(currentNamespace)) {
                 currentNamespace = mergeNamespace;
 
-                MemoryMappingTree newTree = new MemoryMappingTree();
-                tree.accept(new MappingSourceNsSwitch(newTree, mergeNamespace));
-                tree = newTree;
+                // Before the first file, the tree has no namespaces, and switching it would fail.
+                if (tree.getSrcNamespace() != null) {
+                    MemoryMappingTree newTree = new MemoryMappingTree();
+                    tree.accept(new MappingSourceNsSwitch(newTree, mergeNamespace));
+                    tree = newTree;
+                }
             }
 
-            readIntoVisitor(tree, mappingFile);
+            parsed.accept(tree);
         }
 
         return tree;
     }
 
-    private static void readIntoVisitor(MappingVisitor visitor, MappingFile mappingFile) throws IOException {
-        TextResource mappings = mappingFile.getMappings().get();
-        MappingFormat format;
+    private static MemoryMappingTree join(CompletableFuture<MemoryMappingTree> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException u) throw u.getCause();
+            throw e;
+        }
+    }
+
+    private static String computeCacheKey(List<MappingFile> mappingFiles) throws IOException {
+        MessageDigest digest = Hashing.newDigest();
 
-        try (Reader reader = mappings.asReader()) {
-            format = MappingReader.detectFormat(reader);
+        for (MappingFile mappingFile : mappingFiles) {
+            Hashing.update(digest, mappingFile.getDefaultSourceNamespace().get());
+            Hashing.update(digest, mappingFile.getDefaultTargetNamespace().get());
+            Hashing.update(digest, mappingFile.getMergeNamespace().get());
+            Hashing.update(digest, hashContents(mappingFile));
         }
 
-        MappingVisitor realVisitor = visitor;
+        return Hashing.toHex(digest);
+    }
+
+    /**
+     * Hashes the contents of a mapping file. The hashes of files on disk are remembered
+     * by their path, size and modification time, so unchanged files are only read once per daemon.
+     */
+    private static String hashContents(MappingFile mappingFile) throws IOException {
+        if (!mappingFile.getMappingsFile().isPresent()) {
+            return hashContents(MappingContents.read(mappingFile));
+        }
+
+        Path path = mappingFile.getMappingsFile().get().getAsFile().toPath().toAbsolutePath();
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        FileHash hash = FILE_HASHES.get(path);
+
+        if (hash == null || hash.size() != size || hash.lastModified() != lastModified) {
+            hash = new FileHash(size, lastModified, hashContents(MappingContents.read(mappingFile)));
+            FILE_HASHES.put(path, hash);
+        }
+
+        return hash.hash();
+    }
+
+    private static String hashContents(MappingContents contents) {
+        MessageDigest digest = Hashing.newDigest();
+        contents.hash(digest);
+        return Hashing.toHex(digest);
+    }
+
+    private static MemoryMappingTree parse(MappingContents content, String defaultSourceNamespace, String defaultTargetNamespace) throws IOException {
+        MappingFormat format = content.detectFormat();
+        MemoryMappingTree tree = new MemoryMappingTree();
+        MappingVisitor visitor = tree;
 
         if (!format.hasNamespaces) {
-            realVisitor = new MappingNsRenamer(realVisitor, Map.of(
-                MappingUtil.NS_SOURCE_FALLBACK, mappingFile.getDefaultSourceNamespace().get(),
-                MappingUtil.NS_TARGET_FALLBACK, mappingFile.getDefaultTargetNamespace().get()
+            visitor = new MappingNsRenamer(visitor, Map.of(
+                MappingUtil.NS_SOURCE_FALLBACK, defaultSourceNamespace,
+                MappingUtil.NS_TARGET_FALLBACK, defaultTargetNamespace
             ));
         }
 
-        try (Reader reader = mappings.asReader()) {
-            MappingReader.read(reader, format, realVisitor);
+        try (Reader reader = content.newReader()) {
+            MappingReader.read(reader, format, visitor);
         }
+
+        return tree;
     }
 
     @Override
     public Object asTaskInput() {
-        return this;
+        try {
+            return computeCacheKey(getMappingFiles().get());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record FileHash(long size, long lastModified, String hash) {
+    }
+
+    /**
+     * A mapping file to be {@linkplain #read read}.
+     *
+     * @param contents               the contents of the file
+     * @param defaultSourceNamespace the source namespace to use if absent from the file
+     * @param defaultTargetNamespace the target namespace to use if absent from the file
+     * @param mergeNamespace         the namespace to use when merging the file
+     */
+    record MappingInput(MappingContents contents, String defaultSourceNamespace, String defaultTargetNamespace, String mergeNamespace) {
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * SHA-256 hashing utilities for cache keys and fingerprints.
+ */
+public final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * {@return a new SHA-256 digest}
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * Updates a digest with the length and the UTF-8 bytes of a string,
+     * so that consecutive strings can't be confused with each other.
+     *
+     * @param digest the digest
+     * @param value  the string
+     */
+    public static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).flip());
+        digest.update(bytes);
+    }
+
+    /**
+     * {@return the hex string of the hash of a digest}
+     *
+     * @param digest the digest, which is reset
+     */
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Computes a fingerprint from a list of strings.
+     *
+     * @param parts the strings
+     * @return the fingerprint as a hex string
+     */
+    public static String fingerprint(List<String> parts) {
+        MessageDigest digest = newDigest();
+
+        for (String part : parts) {
+            update(digest, part);
+        }
+
+        return toHex(digest);
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The state of incremental jar remapping, stored in a task's temporary directory.
+ *
+ * <p>The state consists of the previous remapped output, the content hashes of the input classes
+ * it was produced from, and a fingerprint of everything else that affects the output
+ * (mappings, namespaces and the classpath). If the fingerprint changes, everything is remapped.
+ *
+ * <p>A class is dirty if it was added or changed, or if any of its supertypes in the input
+ * is dirty or was removed. The remapped names of a dirty class's members can change with its hierarchy,
+ * so classes that refer to a dirty or removed class are dirty as well. Clean classes are copied
+ * from the previous output.
+ */
+public final class IncrementalRemapState {
+    private static final String STATE_FILE = "state.txt";
+    private static final String PREVIOUS_OUTPUT = "previous-output.jar";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final int CONSTANT_CLASS = 7;
+
+    private final Path directory;
+    private final String fingerprint;
+    private final Map<String, String> hashes;
+    private final Set<String> dirtyEntries;
+    private final boolean full;
+
+    private IncrementalRemapState(Path directory, String fingerprint, Map<String, String> hashes, Set<String> dirtyEntries, boolean full) {
+        this.directory = directory;
+        this.fingerprint = fingerprint;
+        this.hashes = hashes;
+        this.dirtyEntries = dirtyEntries;
+        this.full = full;
+    }
+
+    /**
+     * Scans an input jar and compares it to the previous state.
+     *
+     * @param directory   the state directory
+     * @param fingerprint the fingerprint of the current configuration
+     * @param input       the input jar
+     * @return the state
+     */
+    public static IncrementalRemapState scan(Path directory, String fingerprint, Path input) throws IOException {
+        @Nullable Map<String, String> previousHashes = readPreviousHashes(directory, fingerprint);
+        boolean full = previousHashes == null || Files.notExists(directory.resolve(PREVIOUS_OUTPUT));
+        Map<String, String> hashes = new LinkedHashMap<>();
+        Map<String, List<String>> supertypes = new HashMap<>();
+        Map<String, Set<String>> references = new HashMap<>();
+        Set<String> dirtyNames = new HashSet<>();
+        MessageDigest digest = Hashing.newDigest();
+
+        try (ZipFile zip = new ZipFile(input.toFile())) {
+            var entries = zip.entries();
+
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(CLASS_SUFFIX)) continue;
+
+                byte[] bytes;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    bytes = in.readAllBytes();
+                }
+
+                String hash = HexFormat.of().formatHex(digest.digest(bytes));
+                hashes.put(name, hash);
+
+                ClassReader reader = new ClassReader(bytes);
+                List<String> types = new ArrayList<>();
+                if (reader.getSuperName() != null) types.add(reader.getSuperName());
+                types.addAll(List.of(reader.getInterfaces()));
+                supertypes.put(name, types);
+                references.put(name, readClassReferences(reader));
+
+                if (!full && !hash.equals(previousHashes.get(name))) {
+                    dirtyNames.add(toClassName(name));
+                }
+            }
+        }
+
+        if (full) {
+            return new IncrementalRemapState(directory, fingerprint, hashes, hashes.keySet(), true);
+        }
+
+        for (String name : previousHashes.keySet()) {
+            if (!hashes.containsKey(name)) dirtyNames.add(toClassName(name));
+        }
+
+        // Propagate dirtiness to subtypes, since their remapping depends on their supertypes,
+        // and to classes that refer to dirty classes, since the members they use may be remapped differently.
+        // The references aren't followed further: the names of a class's own members only depend on its supertypes.
+        Map<String, String> entriesByClass = new HashMap<>();
+        for (String name : hashes.keySet()) entriesByClass.put(toClassName(name), name);
+
+        Map<String, Boolean> memo = new HashMap<>();
+        Set<String> dirtyEntries = new HashSet<>();
+
+        for (String name : hashes.keySet()) {
+            if (isDirty(toClassName(name), dirtyNames, entriesByClass, supertypes, memo)) {
+                dirtyEntries.add(name);
+                continue;
+            }
+
+            for (String reference : references.get(name)) {
+                if (isDirty(reference, dirtyNames, entriesByClass, supertypes, memo)) {
+                    dirtyEntries.add(name);
+                    break;
+                }
+            }
+        }
+
+        return new IncrementalRemapState(directory, fingerprint, hashes, dirtyEntries, false);
+    }
+
+    /**
+     * {@return the names of the classes in the constant pool of a class}
+     * Member references always refer to their owners through the constant pool,
+     * so this includes the owners of all fields and methods that the class uses.
+     */
+    private static Set<String> readClassReferences(ClassReader reader) {
+        Set<String> references = new HashSet<>();
+        char[] buffer = new char[reader.getMaxStringLength()];
+
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+            // The second slots of long and double constants have no offset.
+            if (offset == 0 || reader.readByte(offset - 1) != CONSTANT_CLASS) continue;
+
+            String name = reader.readUTF8(offset, buffer);
+            // Array types refer to their element types.
+            int elementStart = name.lastIndexOf('[') + 1;
+            if (elementStart == 0) {
+                references.add(name);
+            } else if (name.charAt(elementStart) == 'L') {
+                references.add(name.substring(elementStart + 1, name.length() - 1));
+            }
+        }
+
+        return references;
+    }
+
+    private static boolean isDirty(String className, Set<String> dirtyNames, Map<String, String> entriesByClass,
+                                   Map<String, List<String>> supertypes, Map<String, Boolean> memo) {
+        Boolean known = memo.get(className);
+        if (known != null) return known;
+        if (dirtyNames.contains(className)) {
+            memo.put(className, true);
+            return true;
+        }
+
+        // Guards against cycles in malformed input.
+        memo.put(className, false);
+        boolean dirty = false;
+        String entry = entriesByClass.get(className);
+
+        if (entry != null) {
+            for (String supertype : supertypes.get(entry)) {
+                if (isDirty(supertype, dirtyNames, entriesByClass, supertypes, memo)) {
+                    dirty = true;
+                    break;
+                }
+            }
+        }
+
+        memo.put(className, dirty);
+        return dirty;
+    }
+
+    private static @Nullable Map<String, String> readPreviousHashes(Path directory, String fingerprint) throws IOException {
+        Path stateFile = directory.resolve(STATE_FILE);
+        if (Files.notExists(stateFile)) return null;
+
+        try (BufferedReader reader = Files.newBufferedReader(stateFile)) {
+            if (!fingerprint.equals(reader.readLine())) return null;
+
+            Map<String, String> hashes = new HashMap<>();
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator < 0) return null;
+                hashes.put(line.substring(separator + 1), line.substring(0, separator));
+            }
+
+            return hashes;
+        }
+    }
+
+    private static String toClassName(String entryName) {
+        return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+    }
+
+    /**
+     * {@return whether all classes need to be remapped}
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * {@return the jar entry names of the classes that need to be remapped}
+     */
+    public Set<String> getDirtyEntries() {
+        return dirtyEntries;
+    }
+
+    /**
+     * {@return the jar entry names of all input classes}
+     */
+    public Set<String> getClassEntries() {
+        return hashes.keySet();
+    }
+
+    /**
+     * {@return the previous remapped output}
+     */
+    public Path getPreviousOutput() {
+        return directory.resolve(PREVIOUS_OUTPUT);
+    }
+
+    /**
+     * Saves this state with a new remapped output.
+     * The output is hard linked into the state directory when possible.
+     *
+     * @param output the remapped output
+     */
+    public void save(Path output) throws IOException {
+        Path stateFile = directory.resolve(STATE_FILE);
+        Path previousOutput = getPreviousOutput();
+        Files.createDirectories(directory);
+        // Delete the state first so that a failure below can't pair it with the wrong output.
+        Files.deleteIfExists(stateFile);
+        Files.deleteIfExists(previousOutput);
+
+        try {
+            Files.createLink(previousOutput, output);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(output, previousOutput, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(stateFile)) {
+            writer.write(fingerprint);
+            writer.newLine();
+
+            for (var entry : hashes.entrySet()) {
+                writer.write(entry.getValue());
+                writer.write(' ');
+                writer.write(entry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+}
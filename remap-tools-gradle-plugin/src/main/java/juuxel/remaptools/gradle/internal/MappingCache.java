@@ -0,0 +1,143 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import juuxel.remaptools.CompactMappings;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.gradle.api.invocation.Gradle;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A persistent on-disk cache of mapping trees stored as {@linkplain CompactMappings compact mappings}.
+ *
+ * <p>Cache entries are keyed by a hash of everything that went into producing the mappings,
+ * and stored in a directory per {@linkplain CompactMappings#VERSION compact mapping format version}.
+ * Since the key determines the contents, an existing entry is never replaced. That also keeps entries
+ * that are memory-mapped by a reader intact, which couldn't be replaced on Windows.
+ * Entries that haven't been used for {@value #MAX_UNUSED_DAYS} days are deleted when new entries are written.
+ */
+public final class MappingCache {
+    private static final int MAX_UNUSED_DAYS = 30;
+    private static final String SUFFIX = ".bin";
+
+    private final Path root;
+    private final Path directory;
+
+    private MappingCache(Path root) {
+        this.root = root;
+        this.directory = root.resolve("v" + CompactMappings.VERSION);
+    }
+
+    /**
+     * {@return the shared mapping cache in the Gradle user home}
+     *
+     * @param gradle the current Gradle build
+     */
+    public static MappingCache get(Gradle gradle) {
+        return new MappingCache(gradle.getGradleUserHomeDir().toPath().resolve("caches/remap-tools/mappings"));
+    }
+
+    /**
+     * Reads cached mappings.
+     *
+     * @param key the cache key
+     * @return the read mappings, or {@code null} if there were no valid cached mappings for the key
+     */
+    public @Nullable MemoryMappingTree read(String key) {
+        Path file = getFile(key);
+        if (Files.notExists(file)) return null;
+
+        try {
+            MemoryMappingTree tree = new MemoryMappingTree();
+            CompactMappings.open(file).accept(tree);
+            markUsed(file);
+            return tree;
+        } catch (IOException e) {
+            // A corrupt entry, such as one truncated by a crash. It's deleted so that it can be written again.
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /**
+     * Writes mappings into this cache unless they're already present.
+     *
+     * @param key  the cache key
+     * @param tree the mappings
+     */
+    public void write(String key, MappingTreeView tree) throws IOException {
+        Path file = getFile(key);
+        if (Files.exists(file)) return;
+
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+
+        try {
+            CompactMappings.of(tree).write(temp);
+
+            try {
+                // Within the same directory, this is a rename that never replaces the target.
+                Files.move(temp, file);
+            } catch (FileAlreadyExistsException e) {
+                // Written concurrently with the same contents.
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        deleteUnused();
+    }
+
+    private Path getFile(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static void markUsed(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // Only affects when the entry is deleted.
+        }
+    }
+
+    /**
+     * Deletes entries of all format versions that haven't been used recently.
+     */
+    private void deleteUnused() throws IOException {
+        Instant threshold = Instant.now().minus(Duration.ofDays(MAX_UNUSED_DAYS));
+
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path version : versions) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(version, "*" + SUFFIX)) {
+                    for (Path entry : entries) {
+                        if (Files.getLastModifiedTime(entry).toInstant().isBefore(threshold)) {
+                            deleteQuietly(entry);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still in use, for example memory-mapped on Windows.
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import juuxel.remaptools.gradle.MappingFile;
+import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.mappingio.format.MappingFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * The UTF-8 contents of a {@link MappingFile}.
+ *
+ * <p>{@linkplain MappingFile#getMappingsFile() Mapping files on disk} are memory-mapped,
+ * so they are hashed and parsed without copying them into memory first. This only applies to files:
+ * {@linkplain MappingFile#getMappings() text resources} are read into a string by Gradle and then encoded
+ * to bytes, so they're copied like before. Instances are safe to use from multiple threads.
+ */
+final class MappingContents {
+    // MappingReader reads 4096 characters for detecting the format.
+    private static final int HEADER_BYTES = 4 * 4096;
+
+    private final ByteBuffer bytes;
+
+    private MappingContents(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Reads or maps the contents of a mapping file.
+     *
+     * @param mappingFile the mapping file
+     * @return the contents
+     */
+    static MappingContents read(MappingFile mappingFile) throws IOException {
+        if (mappingFile.getMappingsFile().isPresent()) {
+            Path path = mappingFile.getMappingsFile().get().getAsFile().toPath();
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed.
+                return new MappingContents(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        return of(mappingFile.getMappings().get().asString());
+    }
+
+    /**
+     * {@return the contents of a mapping text}
+     *
+     * @param text the mapping text
+     */
+    static MappingContents of(String text) {
+        return new MappingContents(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Updates a digest with the length and the bytes of the contents.
+     *
+     * @param digest the digest
+     */
+    void hash(MessageDigest digest) {
+        ByteBuffer data = bytes.duplicate();
+        digest.update(ByteBuffer.allocate(4).putInt(data.remaining()).flip());
+        digest.update(data);
+    }
+
+    /**
+     * {@return the detected mapping format} Only the beginning of the contents is decoded.
+     */
+    MappingFormat detectFormat() throws IOException {
+        ByteBuffer header = bytes.duplicate();
+        if (header.remaining() > HEADER_BYTES) header.limit(getCharacterBoundary(header, HEADER_BYTES));
+
+        // Malformed input is replaced instead of failing the detection.
+        String text = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+            .decode(header)
+            .toString();
+        return MappingReader.detectFormat(new StringReader(text));
+    }
+
+    /**
+     * {@return the largest index at most {@code limit} that doesn't split a UTF-8 character}
+     */
+    private static int getCharacterBoundary(ByteBuffer buffer, int limit) {
+        // A character is at most 4 bytes, so its lead byte is at most 3 bytes before the limit.
+        for (int i = limit - 1; i >= Math.max(0, limit - 4); i--) {
+            int b = buffer.get(i) & 0xFF;
+            if ((b & 0xC0) == 0x80) continue; // continuation byte
+
+            int length = b < 0x80 ? 1 : b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+            return i + length > limit ? i : limit;
+        }
+
+        return limit;
+    }
+
+    /**
+     * {@return a new reader that decodes the contents while reading}
+     */
+    Reader newReader() {
+        return new InputStreamReader(new ByteBufferInputStream(bytes.duplicate()), StandardCharsets.UTF_8);
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import juuxel.remaptools.CompactMappings;
+import juuxel.remaptools.gradle.MappingConfiguration;
+import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import net.fabricmc.tinyremapper.IMappingProvider;
+import org.jetbrains.annotations.Nullable;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A build service that shares read mapping trees between tasks.
+ *
+ * <p>Trees are keyed by the {@linkplain MappingConfiguration#asTaskInput() task input} of
+ * their mapping configuration. Only one tree is kept per configuration: the tree's source namespace
+ * isn't switched, since consumers such as {@link TreeMappingProvider} can switch it while visiting
+ * the tree. The cache is kept in a static field,
+ * so it also survives across builds in the same daemon. It holds at most
+ * {@link Parameters#getMaxEntries()} trees and evicts the least recently used ones.
+ *
+ * <p>The mappings derived from a tree for remapping between two namespaces are cached the same way,
+ * keyed by the task input and the namespace pair. See {@link NamespacePairMappings}.
+ *
+ * <p>The returned trees are shared, so they must not be modified.
+ */
+public abstract class MappingTreeService implements BuildService<MappingTreeService.Parameters> {
+    private static final String NAME = "remapToolsMappingTrees";
+    private static final int DEFAULT_MAX_ENTRIES = 4;
+    private static final Cache<MemoryMappingTree> TREES = new Cache<>();
+    private static final Cache<NamespacePairMappings> NAMESPACE_PAIRS = new Cache<>();
+
+    /**
+     * Registers this service if it's not already registered.
+     *
+     * @param gradle the current Gradle build
+     * @return the service provider
+     */
+    public static Provider<MappingTreeService> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(NAME, MappingTreeService.class,
+            spec -> spec.getParameters().getMaxEntries().convention(DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Gets or reads the mappings of a mapping configuration.
+     *
+     * @param configuration the mapping configuration
+     * @return the shared mapping tree
+     */
+    public MemoryMappingTree getMappings(MappingConfiguration configuration) throws IOException {
+        return getMappings(configuration, configuration.asTaskInput());
+    }
+
+    /**
+     * Gets or reads the mappings of a mapping configuration whose task input is already known.
+     *
+     * @param configuration the mapping configuration
+     * @param taskInput     the {@linkplain MappingConfiguration#asTaskInput() task input} of the configuration
+     * @return the shared mapping tree
+     */
+    public MemoryMappingTree getMappings(MappingConfiguration configuration, Object taskInput) throws IOException {
+        return TREES.get(taskInput, getParameters().getMaxEntries().get(), configuration::readMappings);
+    }
+
+    /**
+     * Gets or creates the mappings of a mapping configuration for remapping between two namespaces.
+     *
+     * @param configuration the mapping configuration
+     * @param taskInput     the {@linkplain MappingConfiguration#asTaskInput() task input} of the configuration
+     * @param from          the namespace to remap from
+     * @param to            the namespace to remap to
+     * @return the shared mappings
+     */
+    public NamespacePairMappings getMappings(MappingConfiguration configuration, Object taskInput, String from, String to) throws IOException {
+        return NAMESPACE_PAIRS.get(new NamespacePair(taskInput, from, to), getParameters().getMaxEntries().get(),
+            () -> new NamespacePairMappings(getMappings(configuration, taskInput), from, to));
+    }
+
+    public interface Parameters extends BuildServiceParameters {
+        /**
+         * {@return the maximum number of mapping trees, and of mappings per namespace pair, kept in memory}
+         */
+        Property<Integer> getMaxEntries();
+    }
+
+    /**
+     * The mappings of a mapping tree for remapping between two namespaces.
+     *
+     * <p>The tree is switched to the source namespace once, so the {@linkplain #getProvider() mapping provider}
+     * and the {@linkplain #getCompactMappings() compact mappings} don't need to switch it again
+     * each time they're read. The compact mappings are only created when they're first needed.
+     */
+    public static final class NamespacePairMappings {
+        private final MappingTreeView tree;
+        private final IMappingProvider provider;
+        private @Nullable CompactMappings compactMappings;
+
+        private NamespacePairMappings(MemoryMappingTree tree, String from, String to) {
+            // mapping-io can't switch a tree without namespaces.
+            if (tree.getSrcNamespace() != null && !from.equals(tree.getSrcNamespace())) {
+                MemoryMappingTree switched = new MemoryMappingTree();
+
+                try {
+                    tree.accept(new MappingSourceNsSwitch(switched, from));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                tree = switched;
+            }
+
+            this.tree = tree;
+            this.provider = new TreeMappingProvider(tree, from, to);
+        }
+
+        /**
+         * {@return the mapping tree with the source namespace as its source namespace}
+         */
+        public MappingTreeView getTree() {
+            return tree;
+        }
+
+        /**
+         * {@return a tiny-remapper mapping provider for the namespace pair}
+         */
+        public IMappingProvider getProvider() {
+            return provider;
+        }
+
+        /**
+         * {@return the {@linkplain #getTree() tree} as compact mappings}
+         */
+        public synchronized CompactMappings getCompactMappings() {
+            if (compactMappings == null) compactMappings = CompactMappings.of(tree);
+            return compactMappings;
+        }
+    }
+
+    private record NamespacePair(Object taskInput, String from, String to) {
+    }
+
+    @FunctionalInterface
+    private interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private static final class Cache<V> {
+        private final LinkedHashMap<Object, FutureTask<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        V get(Object key, int maxEntries, Loader<V> loader) throws IOException {
+            FutureTask<V> task;
+            boolean owner = false;
+
+            synchronized (this) {
+                task = entries.get(key);
+
+                if (task == null) {
+                    task = new FutureTask<>(() -> {
+                        try {
+                            return loader.load();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    entries.put(key, task);
+                    owner = true;
+                    evict(maxEntries);
+                }
+            }
+
+            // Load outside the lock so that unrelated entries can be created in parallel.
+            if (owner) task.run();
+
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading mappings", e);
+            } catch (ExecutionException e) {
+                synchronized (this) {
+                    entries.remove(key, task);
+                }
+
+                if (e.getCause() instanceof UncheckedIOException u) throw u.getCause();
+                if (e.getCause() instanceof RuntimeException r) throw r;
+                if (e.getCause() instanceof Error err) throw err;
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        private void evict(int maxEntries) {
+            var iter = entries.entrySet().iterator();
+
+            while (entries.size() > maxEntries && iter.hasNext()) {
+                iter.next();
+                iter.remove();
+            }
+        }
+    }
+}
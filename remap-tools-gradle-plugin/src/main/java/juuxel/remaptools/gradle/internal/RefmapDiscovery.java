@@ -0,0 +1,104 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+/**
+ * Finds the Mixin refmaps of a jar from its Mixin configs.
+ *
+ * <p>The configs are the {@code *.mixins.json} entries of the jar and the configs listed
+ * in the {@code MixinConfigs} attribute of its manifest. Each config names its refmap with the {@code refmap} key.
+ */
+final class RefmapDiscovery {
+    private static final String CONFIG_SUFFIX = ".mixins.json";
+    private static final String MIXIN_CONFIGS_ATTRIBUTE = "MixinConfigs";
+    private static final String REFMAP_KEY = "refmap";
+
+    private RefmapDiscovery() {
+    }
+
+    /**
+     * Finds the refmaps of a jar. Refmaps that are named in configs but missing from the jar are skipped,
+     * since Mixin doesn't require them to exist.
+     *
+     * @param jar the jar
+     * @return the entry names of the refmaps
+     */
+    static Set<String> discover(Path jar) throws IOException {
+        try (JarFile zip = new JarFile(jar.toFile(), false)) {
+            Set<String> configs = new LinkedHashSet<>();
+            Manifest manifest = zip.getManifest();
+
+            if (manifest != null) {
+                String value = manifest.getMainAttributes().getValue(MIXIN_CONFIGS_ATTRIBUTE);
+
+                if (value != null) {
+                    for (String config : value.split(",")) {
+                        if (!config.isBlank()) configs.add(config.strip());
+                    }
+                }
+            }
+
+            zip.stream()
+                .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(CONFIG_SUFFIX))
+                .forEach(entry -> configs.add(entry.getName()));
+
+            // Sorted so that the refmaps are processed in a deterministic order.
+            Set<String> refmaps = new TreeSet<>();
+
+            for (String config : configs) {
+                ZipEntry entry = zip.getEntry(config);
+                if (entry == null) continue;
+
+                String refmap;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    refmap = readRefmap(in);
+                }
+
+                if (refmap != null && zip.getEntry(refmap) != null) {
+                    refmaps.add(refmap);
+                }
+            }
+
+            return refmaps;
+        }
+    }
+
+    private static @Nullable String readRefmap(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.setLenient(true);
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) return null;
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (REFMAP_KEY.equals(name) && reader.peek() == JsonToken.STRING) {
+                return reader.nextString();
+            }
+
+            reader.skipValue();
+        }
+
+        return null;
+    }
+}
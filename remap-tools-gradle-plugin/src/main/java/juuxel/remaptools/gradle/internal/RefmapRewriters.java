@@ -0,0 +1,76 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import juuxel.remaptools.CachingRemapper;
+import juuxel.remaptools.refmap.StreamingRefmapRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates the {@link RemappedJarWriter} rewriters that remap the Mixin refmaps of a jar.
+ */
+public final class RefmapRewriters {
+    private RefmapRewriters() {
+    }
+
+    /**
+     * Creates the rewriters for the refmaps of a jar. The refmaps are remapped with the environment of
+     * the class remapper, which has already indexed the input classes and the classpath.
+     * That way, owners and inherited members of classpath classes, such as Mixin targets, are resolved
+     * without reading the classpath again.
+     *
+     * @param input             the input jar
+     * @param refmaps           the refmap entry names to remap
+     * @param discover          whether refmaps should also be discovered from the Mixin configs of the jar
+     * @param environments      the refmap environments to remap
+     * @param remapMainMappings whether the {@code mappings} section should be remapped
+     * @param remapper          the remapper of the class remapping environment
+     * @return the rewriters by entry name, or an empty map if no refmaps are remapped
+     */
+    public static Map<String, RemappedJarWriter.EntryRewriter> create(Path input, Set<String> refmaps, boolean discover,
+                                                                      Set<String> environments, boolean remapMainMappings,
+                                                                      Remapper remapper) throws IOException {
+        if (environments.isEmpty() && !remapMainMappings) {
+            // Remapping not enabled.
+            return Map.of();
+        }
+
+        if (discover) {
+            refmaps = new HashSet<>(refmaps);
+            refmaps.addAll(RefmapDiscovery.discover(input));
+        }
+
+        if (refmaps.isEmpty()) return Map.of();
+
+        // Refmaps repeat the same owners and descriptors, so their remapped forms are cached.
+        var cachingRemapper = new CachingRemapper(remapper);
+        var refmapRemapper = new StreamingRefmapRemapper(cachingRemapper, environments, remapMainMappings);
+        // The remapper flushes the writer when it's done, so the streams don't need to be closed.
+        RemappedJarWriter.EntryRewriter rewriter = (in, out) -> refmapRemapper.remap(
+            new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)),
+            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))
+        );
+
+        Map<String, RemappedJarWriter.EntryRewriter> rewriters = new HashMap<>();
+        for (String refmap : refmaps) {
+            rewriters.put(refmap, rewriter);
+        }
+        return rewriters;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import juuxel.remaptools.CompactMappings;
+import net.fabricmc.tinyremapper.FileSystemReference;
+import net.fabricmc.tinyremapper.InputTag;
+import net.fabricmc.tinyremapper.TinyRemapper;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A work action that remaps a jar for {@code RemappingJar}.
+ *
+ * <p>The mappings are passed as a {@linkplain CompactMappings compact mapping file}
+ * so that they can be read cheaply in isolated workers. Mixin refmaps are remapped against the same
+ * class index as the classes, in the same pass over the jar. The input jar is deleted after remapping.
+ */
+public abstract class RemapJarAction implements WorkAction<RemapJarAction.Parameters> {
+    @Override
+    public void execute() {
+        try {
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remap() throws IOException {
+        Parameters parameters = getParameters();
+        Path input = parameters.getInput().get().getAsFile().toPath();
+        Path archive = parameters.getOutput().get().getAsFile().toPath();
+
+        try {
+            var fromM = parameters.getSourceNamespace().get();
+            var toM = parameters.getTargetNamespace().get();
+            CompactMappings mappings = CompactMappings.open(parameters.getMappingsFile().get().getAsFile().toPath());
+
+            TinyRemapper remapper = TinyRemapper.newRemapper()
+                .withMappings(new TreeMappingProvider(mappings, fromM, toM))
+                .build();
+
+            Path[] classpath = parameters.getClasspath()
+                .getFiles()
+                .stream()
+                .map(File::toPath)
+                .toArray(Path[]::new);
+
+            IncrementalRemapState state = null;
+
+            if (parameters.getIncrementalStateDirectory().isPresent()) {
+                Path stateDirectory = parameters.getIncrementalStateDirectory().get().getAsFile().toPath();
+                state = IncrementalRemapState.scan(stateDirectory, parameters.getFingerprint().get(), input);
+            }
+
+            try (var inputFs = state != null && !state.isFull() ? FileSystemReference.openJar(input, false) : null;
+                 var classes = new RemappedClassBuffer(archive.toAbsolutePath().getParent())) {
+                // Collect the remapped classes and write them with the non-class entries in one pass.
+                Path previousOutput = null;
+
+                if (inputFs == null) {
+                    remapper.readInputs(input);
+                    remapper.readClassPath(classpath);
+                    remapper.apply(classes::put);
+                } else {
+                    // All classes are read for the hierarchy, but only the dirty ones are remapped.
+                    // The clean classes need their own tag: untagged inputs would be applied with every tag.
+                    Set<String> dirty = state.getDirtyEntries();
+                    InputTag dirtyTag = remapper.createInputTag();
+                    InputTag cleanTag = remapper.createInputTag();
+                    remapper.readInputs(dirtyTag, getEntryPaths(inputFs, dirty));
+                    remapper.readInputs(cleanTag, getEntryPaths(inputFs, state.getClassEntries().stream().filter(name -> !dirty.contains(name)).toList()));
+                    remapper.readClassPath(classpath);
+                    remapper.apply(classes::put, dirtyTag);
+                    previousOutput = state.getPreviousOutput();
+                }
+
+                // Refmaps are remapped while the jar is written, before finishing the remapper discards its class index.
+                var refmapRewriters = RefmapRewriters.create(
+                    input,
+                    parameters.getRefmaps().get(),
+                    parameters.getDiscoverRefmaps().getOrElse(false),
+                    parameters.getRefmapEnvironments().get(),
+                    parameters.getRemapRefmapMainMappings().getOrElse(false),
+                    remapper.getEnvironment().getRemapper()
+                );
+                RemappedJarWriter.write(input, archive, classes, remapper.getEnvironment().getRemapper(), previousOutput, refmapRewriters);
+            } finally {
+                remapper.finish();
+            }
+
+            if (state != null) state.save(archive);
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    private static Path[] getEntryPaths(FileSystemReference fs, Collection<String> entries) {
+        return entries.stream().map(fs::getPath).toArray(Path[]::new);
+    }
+
+    public interface Parameters extends WorkParameters {
+        /**
+         * {@return the jar to remap}
+         */
+        RegularFileProperty getInput();
+
+        /**
+         * {@return the remapped jar}
+         */
+        RegularFileProperty getOutput();
+
+        /**
+         * {@return the compact mapping file}
+         */
+        RegularFileProperty getMappingsFile();
+
+        /**
+         * {@return the source namespace for remapping}
+         */
+        Property<String> getSourceNamespace();
+
+        /**
+         * {@return the target namespace for remapping}
+         */
+        Property<String> getTargetNamespace();
+
+        /**
+         * {@return the classpath of the classes to be remapped}
+         */
+        ConfigurableFileCollection getClasspath();
+
+        /**
+         * {@return the incremental state directory, or empty if all classes should be remapped}
+         */
+        DirectoryProperty getIncrementalStateDirectory();
+
+        /**
+         * {@return the fingerprint of the remapping configuration for incremental remapping}
+         */
+        Property<String> getFingerprint();
+
+        /**
+         * {@return the Mixin refmap file paths to remap}
+         */
+        SetProperty<String> getRefmaps();
+
+        /**
+         * {@return whether Mixin refmaps should be discovered from the Mixin configs in the input jar}
+         */
+        Property<Boolean> getDiscoverRefmaps();
+
+        /**
+         * {@return the Mixin refmap environments to remap}
+         */
+        SetProperty<String> getRefmapEnvironments();
+
+        /**
+         * {@return whether the {@code mappings} section in Mixin refmaps should be remapped}
+         */
+        Property<Boolean> getRemapRefmapMainMappings();
+    }
+}
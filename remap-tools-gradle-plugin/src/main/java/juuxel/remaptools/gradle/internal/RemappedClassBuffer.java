@@ -0,0 +1,166 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Holds remapped classes until {@link RemappedJarWriter} writes them in the order of the input jar.
+ *
+ * <p>tiny-remapper produces the classes on its own threads in no particular order, so they can't be written
+ * as they arrive. Instead, at most {@linkplain #RemappedClassBuffer(Path, long) a bounded number of bytes}
+ * is kept in memory, and the rest is spilled into a temporary file that is deleted when the buffer is closed.
+ * That way, memory use doesn't depend on the size of the jar. Instances are safe to use from multiple threads.
+ */
+public final class RemappedClassBuffer implements Closeable {
+    private static final long DEFAULT_MAX_BUFFERED_BYTES = 64L * 1024 * 1024;
+
+    private final Path spillDirectory;
+    private final long maxBufferedBytes;
+    private final Map<String, byte[]> buffered = new HashMap<>();
+    private final Map<String, SpilledClass> spilled = new HashMap<>();
+    private long bufferedBytes;
+    private @Nullable Path spillFile;
+    private @Nullable FileChannel spill;
+
+    /**
+     * Creates a buffer that keeps up to 64 MiB of classes in memory.
+     *
+     * @param spillDirectory the directory for the temporary spill file
+     */
+    public RemappedClassBuffer(Path spillDirectory) {
+        this(spillDirectory, DEFAULT_MAX_BUFFERED_BYTES);
+    }
+
+    /**
+     * Creates a buffer.
+     *
+     * @param spillDirectory   the directory for the temporary spill file
+     * @param maxBufferedBytes the maximum number of class bytes kept in memory
+     */
+    public RemappedClassBuffer(Path spillDirectory, long maxBufferedBytes) {
+        if (maxBufferedBytes < 0) {
+            throw new IllegalArgumentException("Maximum buffered byte count must not be negative, got " + maxBufferedBytes);
+        }
+
+        this.spillDirectory = spillDirectory;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Adds a remapped class, replacing any class with the same name.
+     * This can be used as the output consumer of tiny-remapper.
+     *
+     * @param name  the remapped internal name
+     * @param bytes the remapped class file
+     */
+    public synchronized void put(String name, byte[] bytes) {
+        try {
+            remove(name);
+
+            if (bufferedBytes + bytes.length <= maxBufferedBytes) {
+                buffered.put(name, bytes);
+                bufferedBytes += bytes.length;
+                return;
+            }
+
+            FileChannel channel = getSpill();
+            long position = channel.size();
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+
+            while (data.hasRemaining()) {
+                channel.write(data, position + data.position());
+            }
+
+            spilled.put(name, new SpilledClass(position, bytes.length));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not buffer remapped class " + name, e);
+        }
+    }
+
+    /**
+     * Removes a remapped class.
+     *
+     * @param name the remapped internal name
+     * @return the remapped class file, or {@code null} if not present
+     */
+    public synchronized byte @Nullable [] remove(String name) throws IOException {
+        byte[] bytes = buffered.remove(name);
+
+        if (bytes != null) {
+            bufferedBytes -= bytes.length;
+            return bytes;
+        }
+
+        SpilledClass spilledClass = spilled.remove(name);
+        if (spilledClass == null) return null;
+
+        ByteBuffer data = ByteBuffer.allocate(spilledClass.length());
+
+        while (data.hasRemaining()) {
+            if (spill.read(data, spilledClass.position() + data.position()) < 0) {
+                throw new IOException("Spilled class " + name + " was truncated");
+            }
+        }
+
+        return data.array();
+    }
+
+    /**
+     * {@return the names of the classes that haven't been removed, in sorted order}
+     */
+    public synchronized SortedSet<String> getNames() {
+        SortedSet<String> names = new TreeSet<>(buffered.keySet());
+        names.addAll(spilled.keySet());
+        return names;
+    }
+
+    private FileChannel getSpill() throws IOException {
+        if (spill == null) {
+            spillFile = Files.createTempFile(spillDirectory, "remapped-classes", ".tmp");
+            spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        return spill;
+    }
+
+    /**
+     * Discards the remaining classes and deletes the spill file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffered.clear();
+        spilled.clear();
+        bufferedBytes = 0;
+
+        if (spill != null) {
+            try {
+                spill.close();
+            } finally {
+                Files.deleteIfExists(spillFile);
+                spill = null;
+                spillFile = null;
+            }
+        }
+    }
+
+    private record SpilledClass(long position, int length) {
+    }
+}
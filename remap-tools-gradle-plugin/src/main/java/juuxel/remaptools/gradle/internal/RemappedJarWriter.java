@@ -0,0 +1,264 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a remapped jar in a single pass over the input jar.
+ *
+ * <p>The entries are written in the order of the input jar. Class entries are replaced
+ * with their remapped counterparts, and other entries are copied with their original metadata.
+ * Class entries are matched to remapped classes by the class name in the class file, so classes stored
+ * under a directory, such as {@code BOOT-INF/classes/}, are replaced in place and keep their directory.
+ * Selected non-class entries, such as Mixin refmaps, can be rewritten in parallel while the jar is written,
+ * so that the output jar is only written once.
+ */
+public final class RemappedJarWriter {
+    private static final String CLASS_SUFFIX = ".class";
+    private static final Pattern VERSION_DIRECTORY = Pattern.compile("META-INF/versions/\\d+/");
+
+    private RemappedJarWriter() {
+    }
+
+    /**
+     * Writes a remapped jar.
+     *
+     * @param input    the input jar
+     * @param output   the output jar
+     * @param classes  the remapped classes by their remapped internal name; classes are removed when written
+     * @param remapper a remapper for finding the remapped names of input classes
+     */
+    public static void write(Path input, Path output, RemappedClassBuffer classes, Remapper remapper) throws IOException {
+        write(input, output, classes, remapper, null);
+    }
+
+    /**
+     * Writes a remapped jar, copying classes that weren't remapped from a previous output.
+     *
+     * @param input          the input jar
+     * @param output         the output jar
+     * @param classes        the remapped classes by their remapped internal name; classes are removed when written
+     * @param remapper       a remapper for finding the remapped names of input classes
+     * @param previousOutput the previous remapped output, or {@code null} if all classes were remapped
+     */
+    public static void write(Path input, Path output, RemappedClassBuffer classes, Remapper remapper, @Nullable Path previousOutput) throws IOException {
+        write(input, output, classes, remapper, previousOutput, Map.of());
+    }
+
+    /**
+     * Writes a remapped jar, copying classes that weren't remapped from a previous output
+     * and rewriting non-class entries.
+     *
+     * @param input          the input jar
+     * @param output         the output jar
+     * @param classes        the remapped classes by their remapped internal name; classes are removed when written
+     * @param remapper       a remapper for finding the remapped names of input classes
+     * @param previousOutput the previous remapped output, or {@code null} if all classes were remapped
+     * @param rewriters      the rewriters for non-class entries by entry name; each entry must exist in the input jar
+     */
+    public static void write(Path input, Path output, RemappedClassBuffer classes, Remapper remapper, @Nullable Path previousOutput,
+                             Map<String, EntryRewriter> rewriters) throws IOException {
+        try (ZipFile zip = new ZipFile(input.toFile())) {
+            Set<String> missing = new TreeSet<>();
+
+            for (String name : rewriters.keySet()) {
+                ZipEntry entry = zip.getEntry(name);
+                if (entry == null || entry.isDirectory()) missing.add(name);
+            }
+
+            if (!missing.isEmpty()) {
+                throw new NoSuchFileException(input.toString(), null, "Missing entries: " + String.join(", ", missing));
+            }
+
+            // The rewritten entries are produced concurrently, and written when the writer reaches them.
+            Map<String, CompletableFuture<byte[]>> rewrites = new HashMap<>();
+
+            for (var rewriter : rewriters.entrySet()) {
+                ZipEntry entry = zip.getEntry(rewriter.getKey());
+                rewrites.put(entry.getName(), CompletableFuture.supplyAsync(() -> rewriteEntry(zip, entry, rewriter.getValue())));
+            }
+
+            try {
+                write(zip, output, classes, remapper, previousOutput, rewrites);
+            } finally {
+                // Don't leave tasks reading from the closed input behind after a failure.
+                rewrites.values().forEach(future -> future.cancel(false));
+            }
+        }
+    }
+
+    private static void write(ZipFile zip, Path output, RemappedClassBuffer classes, Remapper remapper, @Nullable Path previousOutput,
+                              Map<String, CompletableFuture<byte[]>> rewrites) throws IOException {
+        try (ZipFile previous = previousOutput != null ? new ZipFile(previousOutput.toFile()) : null;
+             ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            var entries = zip.entries();
+
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+
+                if (!entry.isDirectory() && name.endsWith(CLASS_SUFFIX)) {
+                    ClassEntry classEntry = remapClassEntry(zip, entry, remapper);
+
+                    if (classEntry != null) {
+                        byte[] bytes = classes.remove(classEntry.remappedClassName());
+
+                        if (bytes != null) {
+                            writeEntry(out, entry, classEntry.remappedEntryName(), bytes);
+                            continue;
+                        }
+
+                        ZipEntry previousEntry = previous != null ? previous.getEntry(classEntry.remappedEntryName()) : null;
+
+                        if (previousEntry != null) {
+                            copyEntry(previous, out, previousEntry);
+                            continue;
+                        }
+                    }
+                }
+
+                CompletableFuture<byte[]> rewrite = !entry.isDirectory() ? rewrites.get(name) : null;
+
+                if (rewrite != null) {
+                    writeEntry(out, entry, name, join(rewrite));
+                    continue;
+                }
+
+                copyEntry(zip, out, entry);
+            }
+
+            // Any classes that weren't matched to an input entry, in a stable order.
+            for (String name : classes.getNames()) {
+                writeEntry(out, null, name + CLASS_SUFFIX, classes.remove(name));
+            }
+        }
+    }
+
+    /**
+     * Finds the remapped names of a class entry from the class name in the class file.
+     * The directory before the class name is kept. tiny-remapper names the classes of multi-release jars
+     * with their version directory, so it's a part of the remapped class name too.
+     *
+     * @return the remapped names, or {@code null} if the entry isn't a valid class file
+     */
+    private static @Nullable ClassEntry remapClassEntry(ZipFile zip, ZipEntry entry, Remapper remapper) throws IOException {
+        String className;
+
+        try (InputStream in = zip.getInputStream(entry)) {
+            className = new ClassReader(in.readAllBytes()).getClassName();
+        } catch (RuntimeException e) {
+            return null;
+        }
+
+        String name = entry.getName();
+        String classPath = className + CLASS_SUFFIX;
+        // Entries that don't match their class name are named after the class like tiny-remapper does.
+        String directory = name.endsWith("/" + classPath) ? name.substring(0, name.length() - classPath.length()) : "";
+        String remappedClassName = remapper.map(className);
+        String versionDirectory = VERSION_DIRECTORY.matcher(directory).matches() ? directory : "";
+
+        return new ClassEntry(versionDirectory + remappedClassName, directory + remappedClassName + CLASS_SUFFIX);
+    }
+
+    private static void copyEntry(ZipFile zip, ZipOutputStream out, ZipEntry entry) throws IOException {
+        ZipEntry copy = new ZipEntry(entry);
+        // The compressed size depends on the compressor, so let the output stream compute it.
+        if (copy.getMethod() != ZipEntry.STORED) copy.setCompressedSize(-1);
+        out.putNextEntry(copy);
+
+        try (InputStream in = zip.getInputStream(entry)) {
+            in.transferTo(out);
+        }
+
+        out.closeEntry();
+    }
+
+    private static byte[] rewriteEntry(ZipFile zip, ZipEntry entry, EntryRewriter rewriter) {
+        // Buffered so that stored entries can be written with their size and checksum.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (InputStream in = zip.getInputStream(entry)) {
+            rewriter.rewrite(in, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rewrite " + entry.getName(), e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw e;
+        }
+    }
+
+    private static void writeEntry(ZipOutputStream out, @Nullable ZipEntry original, String name, byte[] bytes) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+
+        if (original != null) {
+            entry.setTime(original.getTime());
+
+            if (original.getMethod() == ZipEntry.STORED) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(bytes.length);
+                entry.setCompressedSize(bytes.length);
+                entry.setCrc(crc.getValue());
+            }
+        }
+
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    private record ClassEntry(String remappedClassName, String remappedEntryName) {
+    }
+
+    /**
+     * Rewrites the contents of a jar entry while it's being copied.
+     * Entries are rewritten concurrently, so implementations must be thread-safe.
+     */
+    @FunctionalInterface
+    public interface EntryRewriter {
+        /**
+         * Rewrites the contents of an entry.
+         *
+         * @param in  the original contents
+         * @param out the stream for the rewritten contents
+         */
+        void rewrite(InputStream in, OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import juuxel.remaptools.CompactMappings;
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.tinyremapper.IMappingProvider;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * A tiny-remapper mapping provider that reads mappings directly from a mapping tree
+ * or {@linkplain CompactMappings compact mappings}.
+ * If the input namespace is not the source namespace of the mappings, the source namespace
+ * is switched while visiting the mappings without creating a copy of them.
+ */
+public final class TreeMappingProvider implements IMappingProvider {
+    private final String srcNamespace;
+    private final MappingSource mappings;
+    private final String from;
+    private final String to;
+
+    public TreeMappingProvider(MappingTreeView tree, String from, String to) {
+        this(tree.getSrcNamespace(), tree::accept, from, to);
+    }
+
+    public TreeMappingProvider(CompactMappings mappings, String from, String to) {
+        this(mappings.getSrcNamespace(), mappings::accept, from, to);
+    }
+
+    private TreeMappingProvider(String srcNamespace, MappingSource mappings, String from, String to) {
+        this.srcNamespace = srcNamespace;
+        this.mappings = mappings;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public void load(MappingAcceptor out) {
+        MappingVisitor visitor = new AcceptorVisitor(out, to);
+
+        if (!from.equals(srcNamespace)) {
+            visitor = new MappingSourceNsSwitch(visitor, from);
+        }
+
+        try {
+            mappings.accept(visitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MappingSource {
+        void accept(MappingVisitor visitor) throws IOException;
+    }
+
+    private static final class AcceptorVisitor implements MappingVisitor {
+        private final MappingAcceptor out;
+        private final String targetNamespace;
+        private int targetId;
+        private @Nullable String currentClass;
+        private @Nullable Member currentMember;
+        private @Nullable Member currentMethod;
+        private int lvIndex;
+        private int lvtRowIndex;
+        private int startOpIdx;
+
+        AcceptorVisitor(MappingAcceptor out, String targetNamespace) {
+            this.out = out;
+            this.targetNamespace = targetNamespace;
+        }
+
+        @Override
+        public void visitNamespaces(String srcNamespace, List<String> dstNamespaces) {
+            targetId = dstNamespaces.indexOf(targetNamespace);
+
+            if (targetId < 0) {
+                throw new IllegalArgumentException("Target namespace '" + targetNamespace
+                    + "' not present in mappings. Available: " + dstNamespaces);
+            }
+        }
+
+        @Override
+        public boolean visitClass(String srcName) {
+            currentClass = srcName;
+            return true;
+        }
+
+        @Override
+        public boolean visitField(String srcName, @Nullable String srcDesc) {
+            // tiny-remapper needs descriptors for all members.
+            if (srcDesc == null) return false;
+            currentMember = new Member(currentClass, srcName, srcDesc);
+            return true;
+        }
+
+        @Override
+        public boolean visitMethod(String srcName, @Nullable String srcDesc) {
+            if (srcDesc == null) return false;
+            currentMember = currentMethod = new Member(currentClass, srcName, srcDesc);
+            return true;
+        }
+
+        @Override
+        public boolean visitMethodArg(int argPosition, int lvIndex, @Nullable String srcName) {
+            this.lvIndex = lvIndex;
+            return true;
+        }
+
+        @Override
+        public boolean visitMethodVar(int lvtRowIndex, int lvIndex, int startOpIdx, @Nullable String srcName) {
+            this.lvtRowIndex = lvtRowIndex;
+            this.lvIndex = lvIndex;
+            this.startOpIdx = startOpIdx;
+            return true;
+        }
+
+        @Override
+        public void visitDstName(MappedElementKind targetKind, int namespace, String name) {
+            if (namespace != targetId) return;
+
+            switch (targetKind) {
+                case CLASS -> out.acceptClass(currentClass, name);
+                case FIELD -> out.acceptField(currentMember, name);
+                case METHOD -> out.acceptMethod(currentMember, name);
+                case METHOD_ARG -> out.acceptMethodArg(currentMethod, lvIndex, name);
+                case METHOD_VAR -> out.acceptMethodVar(currentMethod, lvIndex, startOpIdx, lvtRowIndex, name);
+            }
+        }
+
+        @Override
+        public void visitComment(MappedElementKind targetKind, String comment) {
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.task;
+
+import juuxel.remaptools.gradle.MappingConfiguration;
+import juuxel.remaptools.gradle.internal.ClasspathIndexService;
+import juuxel.remaptools.gradle.internal.MappingTreeService;
+import juuxel.remaptools.gradle.internal.RefmapRewriters;
+import juuxel.remaptools.gradle.internal.RemappedClassBuffer;
+import juuxel.remaptools.gradle.internal.RemappedJarWriter;
+import net.fabricmc.tinyremapper.IMappingProvider;
+import net.fabricmc.tinyremapper.InputTag;
+import net.fabricmc.tinyremapper.TinyRemapper;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Remaps multiple jars between mapping set namespaces in one batch.
+ *
+ * <p>All input jars are remapped with a single remapper, so the mappings and the classpath
+ * are only read once. Each input jar is written to the output directory with its original file name.
+ * The input jars may reference each other's classes, but they should not contain the same classes.
+ * Mixin refmaps in the jars are remapped with the same class index as the classes.
+ */
+public class RemapJars extends DefaultTask {
+    private final ConfigurableFileCollection inputJars = getProject().getObjects().fileCollection();
+    private final ConfigurableFileCollection remapClasspath = getProject().getObjects().fileCollection();
+    private final Property<MappingConfiguration> mappings = getProject().getObjects().property(MappingConfiguration.class);
+    private final Property<String> sourceNamespace = getProject().getObjects().property(String.class);
+    private final Property<String> targetNamespace = getProject().getObjects().property(String.class);
+    private final DirectoryProperty outputDirectory = getProject().getObjects().directoryProperty();
+    private final SetProperty<String> refmaps = getProject().getObjects().setProperty(String.class);
+    private final Property<Boolean> discoverRefmaps = getProject().getObjects().property(Boolean.class).convention(false);
+    private final SetProperty<String> refmapEnvironments = getProject().getObjects().setProperty(String.class);
+    private final Property<Boolean> remapRefmapMainMappings = getProject().getObjects().property(Boolean.class).convention(true);
+    private final Provider<MappingTreeService> mappingTreeService = MappingTreeService.register(getProject().getGradle());
+    private final Provider<ClasspathIndexService> classpathIndexService = ClasspathIndexService.register(getProject().getGradle());
+
+    public RemapJars() {
+        getInputs().property("mappings", getMappings().map(MappingConfiguration::asTaskInput));
+        usesService(mappingTreeService);
+        usesService(classpathIndexService);
+    }
+
+    /**
+     * {@return the jars to remap}
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getInputJars() {
+        return inputJars;
+    }
+
+    /**
+     * {@return the classpath of the classes to be remapped}
+     */
+    @Classpath
+    public ConfigurableFileCollection getRemapClasspath() {
+        return remapClasspath;
+    }
+
+    /**
+     * {@return the mapping configuration of this remapping task}
+     * It is used to provide a mapping set for remapping.
+     */
+    @Internal
+    public Property<MappingConfiguration> getMappings() {
+        return mappings;
+    }
+
+    /**
+     * {@return the source namespace for remapping}
+     */
+    @Input
+    public Property<String> getSourceNamespace() {
+        return sourceNamespace;
+    }
+
+    /**
+     * {@return the target namespace for remapping}
+     */
+    @Input
+    public Property<String> getTargetNamespace() {
+        return targetNamespace;
+    }
+
+    /**
+     * {@return the directory where the remapped jars are written}
+     */
+    @OutputDirectory
+    public DirectoryProperty getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * {@return a set of all Mixin refmap file paths to remap}
+     * Listed refmaps that are missing from an input jar are skipped for that jar.
+     */
+    @Input
+    public SetProperty<String> getRefmaps() {
+        return refmaps;
+    }
+
+    /**
+     * {@return whether Mixin refmaps should be discovered from the Mixin configs in each jar}
+     * The configs are the {@code *.mixins.json} files and the configs listed in the {@code MixinConfigs}
+     * manifest attribute. The discovered refmaps are remapped in addition to {@linkplain #getRefmaps() the listed ones}.
+     * Defaults to {@code false}.
+     */
+    @Input
+    public Property<Boolean> getDiscoverRefmaps() {
+        return discoverRefmaps;
+    }
+
+    /**
+     * {@return the Mixin refmap environments to remap}
+     * An environment is a key in the {@code data} map.
+     */
+    @Input
+    @Optional
+    public SetProperty<String> getRefmapEnvironments() {
+        return refmapEnvironments;
+    }
+
+    /**
+     * {@return whether the {@code mappings} section in Mixin refmaps should be remapped}
+     * Defaults to {@code true}.
+     */
+    @Input
+    @Optional
+    public Property<Boolean> getRemapRefmapMainMappings() {
+        return remapRefmapMainMappings;
+    }
+
+    @TaskAction
+    public void remap() throws IOException {
+        List<Path> inputs = inputJars.getFiles().stream().map(File::toPath).toList();
+        Path outputDir = outputDirectory.get().getAsFile().toPath();
+        List<Path> outputs = new ArrayList<>(inputs.size());
+        Set<String> fileNames = new HashSet<>();
+
+        for (Path input : inputs) {
+            String fileName = input.getFileName().toString();
+
+            if (!fileNames.add(fileName)) {
+                throw new IllegalArgumentException("Duplicate input jar name: " + fileName);
+            }
+
+            outputs.add(outputDir.resolve(fileName));
+        }
+
+        cleanDirectory(outputDir);
+
+        mappings.finalizeValue();
+        sourceNamespace.finalizeValue();
+        targetNamespace.finalizeValue();
+        refmaps.finalizeValue();
+        discoverRefmaps.finalizeValue();
+        refmapEnvironments.finalizeValue();
+        remapRefmapMainMappings.finalizeValue();
+        var fromM = sourceNamespace.get();
+        var toM = targetNamespace.get();
+        MappingConfiguration mappingConfiguration = mappings.get();
+        IMappingProvider mappingProvider = mappingTreeService.get()
+            .getMappings(mappingConfiguration, mappingConfiguration.asTaskInput(), fromM, toM)
+            .getProvider();
+
+        TinyRemapper remapper = TinyRemapper.newRemapper()
+            .withMappings(mappingProvider)
+            .build();
+
+        Path[] classpath = classpathIndexService.get().index(
+            getRemapClasspath()
+                .getFiles()
+                .stream()
+                .map(File::toPath)
+                .toArray(Path[]::new)
+        );
+
+        List<RemappedClassBuffer> buffers = new ArrayList<>(inputs.size());
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+
+        try {
+            InputTag[] tags = new InputTag[inputs.size()];
+            List<CompletableFuture<?>> reads = new ArrayList<>();
+
+            for (int i = 0; i < inputs.size(); i++) {
+                tags[i] = remapper.createInputTag();
+                reads.add(remapper.readInputsAsync(tags[i], inputs.get(i)));
+            }
+
+            reads.add(remapper.readClassPathAsync(classpath));
+            join(reads);
+
+            // Each apply call remaps the classes of one input in parallel.
+            // All of them finish before the outputs are written, so that the writes only read
+            // the remapping environment while nothing else uses it.
+            for (int i = 0; i < inputs.size(); i++) {
+                RemappedClassBuffer classes = new RemappedClassBuffer(getTemporaryDir().toPath());
+                buffers.add(classes);
+                remapper.apply(classes::put, tags[i]);
+            }
+
+            Remapper classRemapper = remapper.getEnvironment().getRemapper();
+            Set<String> listedRefmaps = refmaps.get();
+            boolean discover = discoverRefmaps.get();
+            Set<String> environments = refmapEnvironments.get();
+            boolean remapMainMappings = remapRefmapMainMappings.get();
+
+            // The jars are written in parallel. Refmaps are remapped while the jars are written,
+            // before finishing the remapper discards its class index.
+            for (int i = 0; i < inputs.size(); i++) {
+                RemappedClassBuffer classes = buffers.get(i);
+                Path input = inputs.get(i);
+                Path output = outputs.get(i);
+                writes.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        Set<String> jarRefmaps = getExistingEntries(input, listedRefmaps);
+                        var refmapRewriters = RefmapRewriters.create(input, jarRefmaps, discover, environments, remapMainMappings, classRemapper);
+                        RemappedJarWriter.write(input, output, classes, classRemapper, null, refmapRewriters);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+
+            join(writes);
+        } catch (IOException | RuntimeException e) {
+            // The started writes still use the remapper and the buffers, so they must finish first.
+            // Then none of the outputs are kept, since some of them are incomplete.
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).handle((result, t) -> null).join();
+
+            for (Path output : outputs) {
+                try {
+                    Files.deleteIfExists(output);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+
+            throw e;
+        } finally {
+            remapper.finish();
+
+            for (RemappedClassBuffer classes : buffers) {
+                classes.close();
+            }
+        }
+    }
+
+    /**
+     * {@return the entries of a jar that exist in it, out of the given entry names}
+     */
+    private static Set<String> getExistingEntries(Path jar, Set<String> names) throws IOException {
+        if (names.isEmpty()) return names;
+
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Set<String> existing = new HashSet<>();
+
+            for (String name : names) {
+                ZipEntry entry = zip.getEntry(name);
+                if (entry != null && !entry.isDirectory()) existing.add(name);
+            }
+
+            return existing;
+        }
+    }
+
+    private static void join(List<CompletableFuture<?>> futures) throws IOException {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException u) throw u.getCause();
+            throw e;
+        }
+    }
+
+    private static void cleanDirectory(Path directory) throws IOException {
+        if (Files.notExists(directory)) return;
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                if (!file.equals(directory)) Files.delete(file);
+            }
+        }
+    }
+}
@@ -6,52 +6,61 @@
 
 package juuxel.remaptools.gradle.task;
 
+import juuxel.remaptools.CompactMappings;
 import juuxel.remaptools.gradle.MappingConfiguration;
-import juuxel.remaptools.refmap.Refmap;
-import net.fabricmc.mappingio.MappingWriter;
-import net.fabricmc.mappingio.adapter.MappingDstNsReorder;
-import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
-import net.fabricmc.mappingio.format.MappingFormat;
-import net.fabricmc.mappingio.tree.MemoryMappingTree;
-import net.fabricmc.tinyremapper.FileSystemReference;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
-import net.fabricmc.tinyremapper.TinyRemapper;
-import net.fabricmc.tinyremapper.TinyUtils;
+import juuxel.remaptools.gradle.internal.ClasspathIndexService;
+import juuxel.remaptools.gradle.internal.Hashing;
+import juuxel.remaptools.gradle.internal.MappingTreeService;
+import juuxel.remaptools.gradle.internal.RemapJarAction;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.provider.SetProperty;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
-import java.io.Reader;
 import java.io.UncheckedIOException;
-import java.io.Writer;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Creates a jar that is then remapped between mapping set namespaces.
  */
-public class RemappingJar extends Jar {
+public abstract class RemappingJar extends Jar {
+    private static final String WORKER_MAPPINGS_PREFIX = "mappings-";
+    private static final String WORKER_MAPPINGS_SUFFIX = ".bin";
+
     private final ConfigurableFileCollection remapClasspath = getProject().getObjects().fileCollection();
     private final Property<MappingConfiguration> mappings = getProject().getObjects().property(MappingConfiguration.class);
     private final Property<String> sourceNamespace = getProject().getObjects().property(String.class);
     private final Property<String> targetNamespace = getProject().getObjects().property(String.class);
     private final SetProperty<String> refmaps = getProject().getObjects().setProperty(String.class);
+    private final Property<Boolean> discoverRefmaps = getProject().getObjects().property(Boolean.class).convention(false);
     private final SetProperty<String> refmapEnvironments = getProject().getObjects().setProperty(String.class);
     private final Property<Boolean> remapRefmapMainMappings = getProject().getObjects().property(Boolean.class).convention(true);
+    private final Property<Boolean> incremental = getProject().getObjects().property(Boolean.class).convention(false);
+    private final Property<WorkerIsolation> workerIsolation = getProject().getObjects().property(WorkerIsolation.class).convention(WorkerIsolation.CLASSLOADER);
+    private final Property<String> workerMaxHeapSize = getProject().getObjects().property(String.class);
+    private final Provider<MappingTreeService> mappingTreeService = MappingTreeService.register(getProject().getGradle());
+    private final Provider<ClasspathIndexService> classpathIndexService = ClasspathIndexService.register(getProject().getGradle());
 
     public RemappingJar() {
         getInputs().property("mappings", getMappings().map(MappingConfiguration::asTaskInput));
+        usesService(mappingTreeService);
+        usesService(classpathIndexService);
     }
 
     /**
@@ -95,6 +104,17 @@ public class RemappingJar extends Jar {
         return refmaps;
     }
 
+    /**
+     * {@return whether Mixin refmaps should be discovered from the Mixin configs in the jar}
+     * The configs are the {@code *.mixins.json} files and the configs listed in the {@code MixinConfigs}
+     * manifest attribute. The discovered refmaps are remapped in addition to {@linkplain #getRefmaps() the listed ones}.
+     * Defaults to {@code false}.
+     */
+    @Input
+    public Property<Boolean> getDiscoverRefmaps() {
+        return discoverRefmaps;
+    }
+
     /**
      * {@return the Mixin refmap environments to remap}
      * An environment is a key in the {@code data} map.
@@ -115,8 +135,48 @@ public class RemappingJar extends Jar {
         return remapRefmapMainMappings;
     }
 
+    /**
+     * {@return whether only changed classes and their subtypes should be remapped}
+     * The other classes are copied from the previous output, which is kept in the temporary directory
+     * of this task. Defaults to {@code false}.
+     */
+    @Internal
+    public Property<Boolean> getIncremental() {
+        return incremental;
+    }
+
+    /**
+     * {@return the isolation mode of the remapping worker}
+     * Defaults to {@link WorkerIsolation#CLASSLOADER}.
+     */
+    @Internal
+    public Property<WorkerIsolation> getWorkerIsolation() {
+        return workerIsolation;
+    }
+
+    /**
+     * {@return the maximum heap size of the remapping worker process, such as {@code "2g"}}
+     * Only used with {@link WorkerIsolation#PROCESS}.
+     */
+    @Internal
+    public Property<String> getWorkerMaxHeapSize() {
+        return workerMaxHeapSize;
+    }
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @Override
     protected void copy() {
+        if (incremental.get()) {
+            // The archive may be hard linked to the previous output, so it must not be written in place.
+            try {
+                Files.deleteIfExists(getArchiveFile().get().getAsFile().toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         super.copy();
 
         try {
@@ -129,95 +189,140 @@ public class RemappingJar extends Jar {
     private void remap() throws IOException {
         Path input = Files.createTempFile(getTemporaryDir().toPath(), "input", ".jar");
         Path archive = getArchiveFile().get().getAsFile().toPath();
-        Files.copy(archive, input, StandardCopyOption.REPLACE_EXISTING);
-        Files.delete(archive);
-
-        mappings.finalizeValue();
-        sourceNamespace.finalizeValue();
-        targetNamespace.finalizeValue();
-        var fromM = sourceNamespace.get();
-        var toM = targetNamespace.get();
-        MemoryMappingTree mappingTree = mappings.get().readMappings();
-
-        if (!fromM.equals(mappingTree.getSrcNamespace())) {
-            MemoryMappingTree newTree = new MemoryMappingTree();
-            mappingTree.accept(new MappingSourceNsSwitch(newTree, fromM));
-            mappingTree = newTree;
-        }
-
-        Path mappings = Files.createTempFile(getTemporaryDir().toPath(), "mappings", ".tiny");
-        try (var writer = MappingWriter.create(mappings, MappingFormat.TINY_2)) {
-            mappingTree.accept(new MappingDstNsReorder(writer, toM));
-        }
+        // Moving is a rename when the temporary directory is on the same file system as the archive.
+        Files.move(archive, input, StandardCopyOption.REPLACE_EXISTING);
 
         try {
-            TinyRemapper remapper = TinyRemapper.newRemapper()
-                .withMappings(TinyUtils.createTinyMappingProvider(mappings, fromM, toM))
-                .build();
+            mappings.finalizeValue();
+            sourceNamespace.finalizeValue();
+            targetNamespace.finalizeValue();
+            incremental.finalizeValue();
+            workerIsolation.finalizeValue();
+            workerMaxHeapSize.finalizeValue();
+            getRefmaps().finalizeValue();
+            getDiscoverRefmaps().finalizeValue();
+            getRefmapEnvironments().finalizeValue();
+            getRemapRefmapMainMappings().finalizeValue();
+            var fromM = sourceNamespace.get();
+            var toM = targetNamespace.get();
+            // Computing the task input may hash the mapping files, so it's only done once.
+            Object mappingsInput = mappings.get().asTaskInput();
+            Path mappingsFile = writeWorkerMappings(mappingsInput, fromM, toM);
 
             Path[] classpath = getRemapClasspath()
                 .getFiles()
                 .stream()
                 .map(File::toPath)
                 .toArray(Path[]::new);
+            String fingerprint = incremental.get() ? computeFingerprint(mappingsInput, fromM, toM, classpath) : null;
+            Path[] indexedClasspath = classpathIndexService.get().index(classpath);
+
+            WorkQueue queue = switch (workerIsolation.get()) {
+                case NONE -> getWorkerExecutor().noIsolation();
+                case CLASSLOADER -> getWorkerExecutor().classLoaderIsolation();
+                case PROCESS -> getWorkerExecutor().processIsolation(spec -> {
+                    if (workerMaxHeapSize.isPresent()) {
+                        spec.forkOptions(options -> options.setMaxHeapSize(workerMaxHeapSize.get()));
+                    }
+                });
+            };
+
+            queue.submit(RemapJarAction.class, parameters -> {
+                parameters.getInput().set(input.toFile());
+                parameters.getOutput().set(archive.toFile());
+                parameters.getMappingsFile().set(mappingsFile.toFile());
+                parameters.getSourceNamespace().set(fromM);
+                parameters.getTargetNamespace().set(toM);
+                parameters.getClasspath().from((Object[]) indexedClasspath);
+
+                if (fingerprint != null) {
+                    parameters.getIncrementalStateDirectory().set(new File(getTemporaryDir(), "incremental"));
+                    parameters.getFingerprint().set(fingerprint);
+                }
 
-            try (var outputConsumer = new OutputConsumerPath.Builder(archive).build()) {
-                outputConsumer.addNonClassFiles(input);
-
-                remapper.readInputs(input);
-                remapper.readClassPath(classpath);
-
-                remapper.apply(outputConsumer);
-            } finally {
-                remapper.finish();
-            }
-
-            getRefmaps().finalizeValue();
-            getRefmapEnvironments().finalizeValue();
-            getRemapRefmapMainMappings().finalizeValue();
-            var refmaps = getRefmaps().get();
-            if (!refmaps.isEmpty()) remapRefmaps(archive, refmaps, remapper);
-        } finally {
-            Files.deleteIfExists(mappings);
+                parameters.getRefmaps().set(getRefmaps());
+                parameters.getDiscoverRefmaps().set(getDiscoverRefmaps());
+                parameters.getRefmapEnvironments().set(getRefmapEnvironments());
+                parameters.getRemapRefmapMainMappings().set(getRemapRefmapMainMappings());
+            });
+        } catch (IOException | RuntimeException e) {
+            // The worker deletes the input once it's done, but it won't run now.
             Files.deleteIfExists(input);
+            throw e;
         }
     }
 
-    // TODO: Doesn't remap references to classpath classes, which makes it useless...
-    private void remapRefmaps(Path archive, Set<String> refmaps, TinyRemapper remapper) throws IOException {
-        var environments = getRefmapEnvironments().get();
-        var remapMainMappings = getRemapRefmapMainMappings().getOrElse(false);
-
-        if (environments.isEmpty() && !remapMainMappings) {
-            // Remapping not enabled.
-            return;
+    /**
+     * Writes the mappings for the worker as compact mappings into the temporary directory.
+     * The file name contains a hash of the mappings and the namespaces, so the file is only written when they change.
+     * The mappings are already switched to the source namespace, so the worker doesn't need to switch them.
+     *
+     * <p>Existing files are never replaced, since a worker in the daemon may still have them memory-mapped,
+     * which prevents replacing them on Windows. Files for other mappings are deleted when they're no longer in use.
+     */
+    private Path writeWorkerMappings(Object mappingsInput, String from, String to) throws IOException {
+        Path directory = getTemporaryDir().toPath();
+        String key = Hashing.fingerprint(List.of(String.valueOf(mappingsInput), from, to));
+        Path mappingsFile = directory.resolve(WORKER_MAPPINGS_PREFIX + key + WORKER_MAPPINGS_SUFFIX);
+
+        if (Files.notExists(mappingsFile)) {
+            CompactMappings compactMappings = mappingTreeService.get()
+                .getMappings(mappings.get(), mappingsInput, from, to)
+                .getCompactMappings();
+            Path temp = Files.createTempFile(directory, "mappings", ".tmp");
+
+            try {
+                compactMappings.write(temp);
+                Files.move(temp, mappingsFile);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
         }
 
-        try (var fs = FileSystemReference.openJar(archive, false)) {
-            for (var refmap : refmaps) {
-                var refmapPath = fs.getPath(refmap);
-                if (Files.notExists(refmapPath)) {
-                    throw new NoSuchFileException(refmap);
-                }
-
-                Refmap refmapObj;
-
-                try (Reader reader = Files.newBufferedReader(refmapPath)) {
-                    refmapObj = Refmap.read(reader);
-                }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, WORKER_MAPPINGS_PREFIX + "*" + WORKER_MAPPINGS_SUFFIX)) {
+            for (Path file : files) {
+                if (file.equals(mappingsFile)) continue;
 
-                for (var environment : environments) {
-                    refmapObj = refmapObj.remap(environment, remapper.getEnvironment().getRemapper());
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // Still mapped by a worker on Windows; deleted by a later build.
                 }
+            }
+        }
 
-                if (remapMainMappings) {
-                    refmapObj = refmapObj.remapDefault(remapper.getEnvironment().getRemapper());
-                }
+        return mappingsFile;
+    }
 
-                try (Writer writer = Files.newBufferedWriter(refmapPath)) {
-                    refmapObj.write(writer);
+    private String computeFingerprint(Object mappingsInput, String from, String to, Path[] classpath) throws IOException {
+        List<String> parts = new ArrayList<>();
+        parts.add(String.valueOf(mappingsInput));
+        parts.add(from);
+        parts.add(to);
+
+        for (Path path : classpath) {
+            parts.add(path.toAbsolutePath().toString());
+
+            if (Files.isRegularFile(path)) {
+                parts.add(describeFile(path));
+            } else if (Files.isDirectory(path)) {
+                // Directories such as other projects' class output change in place,
+                // so every file in them is part of the fingerprint.
+                try (Stream<Path> files = Files.walk(path)) {
+                    List<Path> sortedFiles = files.filter(Files::isRegularFile).sorted().toList();
+
+                    for (Path file : sortedFiles) {
+                        parts.add(path.relativize(file).toString());
+                        parts.add(describeFile(file));
+                    }
                 }
             }
         }
+
+        return Hashing.fingerprint(parts);
+    }
+
+    private static String describeFile(Path file) throws IOException {
+        return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
     }
 }
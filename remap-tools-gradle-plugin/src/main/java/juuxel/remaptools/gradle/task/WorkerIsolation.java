@@ -0,0 +1,27 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.task;
+
+/**
+ * The isolation mode of the workers that remapping tasks run in.
+ */
+public enum WorkerIsolation {
+    /**
+     * Remapping runs in the build process with the classloader of the plugin.
+     */
+    NONE,
+
+    /**
+     * Remapping runs in the build process with an isolated classloader.
+     */
+    CLASSLOADER,
+
+    /**
+     * Remapping runs in a separate worker process.
+     */
+    PROCESS,
+}
@@ -0,0 +1,166 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import net.fabricmc.mappingio.MappingReader;
+import net.fabricmc.mappingio.MappingUtil;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.adapter.MappingNsRenamer;
+import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
+import net.fabricmc.mappingio.format.MappingFormat;
+import net.fabricmc.mappingio.format.Tiny2Writer;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link FileMappingConfigurationInternal#read} merges mapping files
+ * like reading them one by one does.
+ */
+class FileMappingConfigurationInternalTest {
+    private static final String INTERMEDIARY = """
+        tiny\t2\t0\tofficial\tintermediary
+        c\ta\tclass_1
+        \tf\tI\tf\tfield_1
+        \tm\t(Lb;)La;\tm\tmethod_1
+        \tm\t()V\tn\tmethod_2
+        c\tb\tclass_2
+        c\tc\t
+        """;
+    private static final String NAMED = """
+        tiny\t2\t0\tintermediary\tnamed
+        c\tclass_1\tpkg/Named
+        \tc\tA class.
+        \tf\tI\tfield_1\tcount
+        \t\tc\tA field.
+        \tm\t(Lclass_2;)Lclass_1;\tmethod_1\tconvert
+        \t\tp\t1\t\tother
+        \t\tv\t2\t0\t-1\t\tresult
+        \tm\t()V\tmethod_99\tadded
+        c\tclass_2\tpkg/Other
+        c\tclass_99\tpkg/Added
+        """;
+    private static final String PROGUARD = """
+        pkg.Named -> a:
+            int count -> f
+            void extra() -> x
+        pkg.Missing -> z:
+        """;
+    private static final String OFFICIAL_JAVADOC = """
+        tiny\t2\t0\tofficial\tjavadoc
+        c\ta\tpkg/Documented
+        \tc\tDocumented in the official namespace.
+        c\tb\tpkg/Documented2
+        """;
+
+    @Test
+    void readMatchesSequentialMerge() throws IOException {
+        assertReadMatchesSequentialMerge(List.of(
+            new Input(INTERMEDIARY, "official"),
+            new Input(NAMED, "intermediary"),
+            new Input(PROGUARD, "named")
+        ));
+    }
+
+    @Test
+    void readMatchesSequentialMergeWhenSwitchingBack() throws IOException {
+        assertReadMatchesSequentialMerge(List.of(
+            new Input(INTERMEDIARY, "official"),
+            new Input(NAMED, "intermediary"),
+            new Input(OFFICIAL_JAVADOC, "official")
+        ));
+    }
+
+    @Test
+    void readMatchesSequentialMergeWhenFirstMergeNamespaceIsNotSource() throws IOException {
+        // The first file's merge namespace decides whether the second file switches the tree.
+        assertReadMatchesSequentialMerge(List.of(
+            new Input(INTERMEDIARY, "intermediary"),
+            new Input(NAMED, "intermediary")
+        ));
+        assertReadMatchesSequentialMerge(List.of(
+            new Input(INTERMEDIARY, "intermediary"),
+            new Input(OFFICIAL_JAVADOC, "official")
+        ));
+    }
+
+    @Test
+    void readMatchesSequentialMergeForSingleAndNoFiles() throws IOException {
+        assertReadMatchesSequentialMerge(List.of(new Input(NAMED, "intermediary")));
+        assertReadMatchesSequentialMerge(List.of());
+    }
+
+    private static void assertReadMatchesSequentialMerge(List<Input> inputs) throws IOException {
+        List<FileMappingConfigurationInternal.MappingInput> mappingInputs = new ArrayList<>();
+
+        for (Input input : inputs) {
+            mappingInputs.add(new FileMappingConfigurationInternal.MappingInput(
+                MappingContents.of(input.text()), "named", "official", input.mergeNamespace()
+            ));
+        }
+
+        MemoryMappingTree expected = readSequentially(inputs);
+        MemoryMappingTree actual = FileMappingConfigurationInternal.read(mappingInputs);
+        assertEquals(expected.getSrcNamespace(), actual.getSrcNamespace(), "Source namespace");
+        assertEquals(toTiny(expected), toTiny(actual));
+    }
+
+    /**
+     * Reads and merges mapping files one by one.
+     */
+    private static MemoryMappingTree readSequentially(List<Input> inputs) throws IOException {
+        MemoryMappingTree tree = new MemoryMappingTree();
+        String currentNamespace = null;
+
+        for (Input input : inputs) {
+            if (!input.mergeNamespace().equals(currentNamespace)) {
+                currentNamespace = input.mergeNamespace();
+
+                // mapping-io can't switch a tree without namespaces.
+                if (tree.getSrcNamespace() != null) {
+                    MemoryMappingTree newTree = new MemoryMappingTree();
+                    tree.accept(new MappingSourceNsSwitch(newTree, currentNamespace));
+                    tree = newTree;
+                }
+            }
+
+            MappingFormat format = MappingReader.detectFormat(new StringReader(input.text()));
+            MappingVisitor visitor = tree;
+
+            if (!format.hasNamespaces) {
+                visitor = new MappingNsRenamer(visitor, Map.of(
+                    MappingUtil.NS_SOURCE_FALLBACK, "named",
+                    MappingUtil.NS_TARGET_FALLBACK, "official"
+                ));
+            }
+
+            MappingReader.read(new StringReader(input.text()), format, visitor);
+        }
+
+        return tree;
+    }
+
+    private static String toTiny(MappingTreeView tree) throws IOException {
+        if (tree.getSrcNamespace() == null) return "";
+
+        StringWriter writer = new StringWriter();
+        tree.accept(new Tiny2Writer(writer, false));
+        return writer.toString();
+    }
+
+    private record Input(String text, String mergeNamespace) {
+    }
+}
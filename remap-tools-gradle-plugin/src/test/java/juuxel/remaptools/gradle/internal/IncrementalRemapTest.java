@@ -0,0 +1,285 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that incremental remapping with {@link IncrementalRemapState} and {@link RemappedJarWriter}
+ * produces the same jar as remapping all classes.
+ */
+class IncrementalRemapTest {
+    private static final String FINGERPRINT = "fingerprint";
+    private static final long ENTRY_TIME = 1_000_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void incrementalOutputMatchesFullOutput() throws IOException {
+        Path stateDirectory = tempDir.resolve("state");
+
+        Map<String, byte[]> first = new LinkedHashMap<>();
+        first.put("pkg/A.class", createClass("pkg/A", "java/lang/Object"));
+        first.put("pkg/B.class", createClass("pkg/B", "pkg/A", "run"));
+        first.put("pkg/C.class", createClass("pkg/C", "pkg/B", "run"));
+        first.put("pkg/I.class", createInterface("pkg/I", "call"));
+        first.put("pkg/D.class", createClass("pkg/D", "java/lang/Object", List.of("pkg/I"), "call"));
+        first.put("pkg/E.class", createClass("pkg/E", "java/lang/Object"));
+        first.put("pkg/G.class", createCaller("pkg/G", "pkg/B", "run", "()V"));
+        first.put("pkg/H.class", createCaller("pkg/H", "pkg/G", "use", "(Lpkg/B;)V"));
+        first.put("assets/data.txt", "data".getBytes(StandardCharsets.UTF_8));
+        IncrementalRemapState state = remapIncrementally(stateDirectory, first);
+        assertTrue(state.isFull(), "First run is full");
+
+        // A declares the method that its subtypes override, so they have to be remapped too.
+        // G calls the method through B, so its call has to be remapped. H only calls G's own method.
+        Map<String, byte[]> second = new LinkedHashMap<>(first);
+        second.put("pkg/A.class", createClass("pkg/A", "java/lang/Object", "run"));
+        second.remove("pkg/E.class");
+        second.put("pkg/F.class", createClass("pkg/F", "pkg/D", "call"));
+        state = remapIncrementally(stateDirectory, second);
+        assertFalse(state.isFull(), "Second run is incremental");
+        assertEquals(Set.of("pkg/A.class", "pkg/B.class", "pkg/C.class", "pkg/F.class", "pkg/G.class"), state.getDirtyEntries());
+
+        // Removing a supertype dirties its subtypes as well.
+        Map<String, byte[]> third = new LinkedHashMap<>(second);
+        third.remove("pkg/I.class");
+        third.put("assets/data.txt", "changed".getBytes(StandardCharsets.UTF_8));
+        state = remapIncrementally(stateDirectory, third);
+        assertFalse(state.isFull(), "Third run is incremental");
+        assertEquals(Set.of("pkg/D.class", "pkg/F.class"), state.getDirtyEntries());
+    }
+
+    @Test
+    void changedFingerprintRemapsAllClasses() throws IOException {
+        Path stateDirectory = tempDir.resolve("state");
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("pkg/A.class", createClass("pkg/A", "java/lang/Object"));
+        entries.put("pkg/B.class", createClass("pkg/B", "pkg/A", "run"));
+        remapIncrementally(stateDirectory, entries);
+
+        Path input = writeJar(tempDir.resolve("input.jar"), entries);
+        IncrementalRemapState state = IncrementalRemapState.scan(stateDirectory, FINGERPRINT + " changed", input);
+        assertTrue(state.isFull(), "Run with a changed fingerprint is full");
+        assertEquals(entries.keySet(), state.getDirtyEntries());
+    }
+
+    /**
+     * Remaps the entries incrementally like {@code RemapJarAction}, and checks that
+     * the output matches remapping all classes.
+     */
+    private IncrementalRemapState remapIncrementally(Path stateDirectory, Map<String, byte[]> entries) throws IOException {
+        Path input = writeJar(tempDir.resolve("input.jar"), entries);
+        HierarchyRemapper remapper = new HierarchyRemapper(entries, tempDir);
+
+        Path expected = tempDir.resolve("expected.jar");
+        Set<String> classEntries = entries.keySet().stream().filter(name -> name.endsWith(".class")).collect(Collectors.toSet());
+        try (RemappedClassBuffer classes = remapper.remap(classEntries)) {
+            RemappedJarWriter.write(input, expected, classes, remapper);
+        }
+
+        IncrementalRemapState state = IncrementalRemapState.scan(stateDirectory, FINGERPRINT, input);
+        Path output = tempDir.resolve("output.jar");
+        Files.deleteIfExists(output);
+        Path previousOutput = state.isFull() ? null : state.getPreviousOutput();
+        try (RemappedClassBuffer classes = remapper.remap(state.getDirtyEntries())) {
+            RemappedJarWriter.write(input, output, classes, remapper, previousOutput);
+        }
+        state.save(output);
+
+        assertJarsEqual(expected, output);
+        return state;
+    }
+
+    private static void assertJarsEqual(Path expected, Path actual) throws IOException {
+        try (ZipFile expectedZip = new ZipFile(expected.toFile()); ZipFile actualZip = new ZipFile(actual.toFile())) {
+            List<String> expectedNames = expectedZip.stream().map(ZipEntry::getName).toList();
+            assertEquals(expectedNames, actualZip.stream().map(ZipEntry::getName).toList());
+
+            for (String name : expectedNames) {
+                assertArrayEquals(read(expectedZip, name), read(actualZip, name), "Contents of " + name);
+            }
+        }
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static Path writeJar(Path path, Map<String, byte[]> entries) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (var entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setTime(ENTRY_TIME);
+                out.putNextEntry(zipEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+
+        return path;
+    }
+
+    private static byte[] createClass(String name, String superName, String... methods) {
+        return createClass(name, superName, List.of(), methods);
+    }
+
+    private static byte[] createClass(String name, String superName, List<String> interfaces, String... methods) {
+        return createClass(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name, superName, interfaces, List.of(methods));
+    }
+
+    private static byte[] createInterface(String name, String... methods) {
+        return createClass(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE, name, "java/lang/Object", List.of(), List.of(methods));
+    }
+
+    /**
+     * Creates a class with a method {@code use} that calls a method of an instance of another class
+     * with {@code null} arguments.
+     */
+    private static byte[] createCaller(String name, String calledOwner, String calledMethod, String calledDescriptor) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+
+        int argumentCount = Type.getArgumentTypes(calledDescriptor).length;
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "use", "(L" + calledOwner + ";)V", null, null);
+        method.visitCode();
+        method.visitVarInsn(Opcodes.ALOAD, 1);
+        for (int i = 0; i < argumentCount; i++) method.visitInsn(Opcodes.ACONST_NULL);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, calledOwner, calledMethod, calledDescriptor, false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(1 + argumentCount, 2);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] createClass(int access, String name, String superName, List<String> interfaces, List<String> methods) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, access, name, null, superName, interfaces.toArray(String[]::new));
+
+        for (String method : methods) {
+            writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method, "()V", null, null).visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * A remapper whose method names depend on the class hierarchy, like in tiny-remapper:
+     * methods are named after the topmost class in the input that declares them.
+     */
+    private static final class HierarchyRemapper extends Remapper {
+        private final Map<String, byte[]> entries;
+        private final Path spillDirectory;
+        private final Map<String, ClassReader> classes = new HashMap<>();
+
+        HierarchyRemapper(Map<String, byte[]> entries, Path spillDirectory) {
+            this.entries = entries;
+            this.spillDirectory = spillDirectory;
+
+            for (var entry : entries.entrySet()) {
+                if (entry.getKey().endsWith(".class")) {
+                    ClassReader reader = new ClassReader(entry.getValue());
+                    classes.put(reader.getClassName(), reader);
+                }
+            }
+        }
+
+        RemappedClassBuffer remap(Set<String> entryNames) {
+            // Nothing is kept in memory, so that spilled classes are tested too.
+            RemappedClassBuffer remapped = new RemappedClassBuffer(spillDirectory, 0);
+
+            for (String entryName : entryNames) {
+                ClassReader reader = new ClassReader(entries.get(entryName));
+                ClassWriter writer = new ClassWriter(0);
+                reader.accept(new ClassRemapper(writer, this), 0);
+                remapped.put(map(reader.getClassName()), writer.toByteArray());
+            }
+
+            return remapped;
+        }
+
+        @Override
+        public String map(String internalName) {
+            return internalName.startsWith("pkg/") ? "mapped/" + internalName.substring(4) : internalName;
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            String declaringClass = findTopmostDeclaringClass(owner, name, descriptor);
+            return declaringClass != null ? name + "_" + declaringClass.substring(4) : name;
+        }
+
+        /**
+         * {@return the topmost class in the input that declares the method, or {@code null} if there's none}
+         */
+        private String findTopmostDeclaringClass(String owner, String name, String descriptor) {
+            ClassReader reader = classes.get(owner);
+            if (reader == null) return null;
+
+            List<String> supertypes = new ArrayList<>();
+            supertypes.add(reader.getSuperName());
+            supertypes.addAll(List.of(reader.getInterfaces()));
+
+            for (String supertype : supertypes) {
+                String declaringClass = findTopmostDeclaringClass(supertype, name, descriptor);
+                if (declaringClass != null) return declaringClass;
+            }
+
+            return declares(reader, name, descriptor) ? owner : null;
+        }
+
+        private static boolean declares(ClassReader reader, String name, String descriptor) {
+            boolean[] found = { false };
+
+            reader.accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String methodName, String methodDescriptor, String signature, String[] exceptions) {
+                    if (methodName.equals(name) && methodDescriptor.equals(descriptor)) found[0] = true;
+                    return null;
+                }
+            }, ClassReader.SKIP_CODE);
+
+            return found[0];
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link RefmapDiscovery} finds the refmaps named in Mixin configs.
+ */
+class RefmapDiscoveryTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void refmapsAreFoundFromConfigFiles() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("example.mixins.json", "{\"package\": \"example.mixin\", \"refmap\": \"example-refmap.json\"}");
+        entries.put("nested/other.mixins.json", "{\"refmap\": \"nested/other-refmap.json\", \"mixins\": [\"A\"]}");
+        entries.put("example-refmap.json", "{}");
+        entries.put("nested/other-refmap.json", "{}");
+        // Configs without a refmap and other JSON files are ignored.
+        entries.put("norefmap.mixins.json", "{\"package\": \"example.mixin\"}");
+        entries.put("data.json", "{\"refmap\": \"data-refmap.json\"}");
+        entries.put("data-refmap.json", "{}");
+
+        assertEquals(Set.of("example-refmap.json", "nested/other-refmap.json"), RefmapDiscovery.discover(writeJar(entries)));
+    }
+
+    @Test
+    void refmapsAreFoundFromManifestConfigs() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMixinConfigs: first.json, second.json,,missing.json\r\n\r\n");
+        entries.put("first.json", "{\"refmap\": \"first-refmap.json\"}");
+        entries.put("second.json", "{\"required\": true, \"refmap\": \"second-refmap.json\"}");
+        entries.put("first-refmap.json", "{}");
+        entries.put("second-refmap.json", "{}");
+
+        assertEquals(Set.of("first-refmap.json", "second-refmap.json"), RefmapDiscovery.discover(writeJar(entries)));
+    }
+
+    @Test
+    void missingRefmapsAreSkipped() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMixinConfigs: manifest.json\r\n\r\n");
+        entries.put("manifest.json", "{\"refmap\": \"manifest-refmap.json\"}");
+        entries.put("present.mixins.json", "{\"refmap\": \"present-refmap.json\"}");
+        entries.put("absent.mixins.json", "{\"refmap\": \"absent-refmap.json\"}");
+        entries.put("invalid.mixins.json", "[\"refmap\"]");
+        entries.put("present-refmap.json", "{}");
+
+        assertEquals(Set.of("present-refmap.json"), RefmapDiscovery.discover(writeJar(entries)));
+    }
+
+    private Path writeJar(Map<String, String> entries) throws IOException {
+        Path jar = Files.createTempFile(tempDir, "mixins", ".jar");
+
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (var entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        return jar;
+    }
+}
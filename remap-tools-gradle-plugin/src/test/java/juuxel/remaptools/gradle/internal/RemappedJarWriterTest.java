@@ -0,0 +1,106 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.gradle.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link RemappedJarWriter} matches class entries by their class names.
+ */
+class RemappedJarWriterTest {
+    private static final Remapper REMAPPER = new Remapper() {
+        @Override
+        public String map(String internalName) {
+            return internalName.startsWith("pkg/") ? "mapped/" + internalName.substring(4) : internalName;
+        }
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void classesAreReplacedInPlace() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("pkg/A.class", createClass("pkg/A"));
+        entries.put("BOOT-INF/classes/pkg/B.class", createClass("pkg/B"));
+        entries.put("META-INF/versions/9/pkg/A.class", createClass("pkg/A"));
+        entries.put("misplaced/C.class", createClass("pkg/C"));
+        entries.put("invalid.class", "not a class".getBytes(StandardCharsets.UTF_8));
+        Path input = writeJar(tempDir.resolve("input.jar"), entries);
+
+        Path output = tempDir.resolve("output.jar");
+
+        // Classes are named like tiny-remapper names them: versioned classes keep their version directory.
+        try (RemappedClassBuffer classes = new RemappedClassBuffer(tempDir, 0)) {
+            classes.put("mapped/A", createClass("mapped/A"));
+            classes.put("mapped/B", createClass("mapped/B"));
+            classes.put("META-INF/versions/9/mapped/A", createClass("mapped/A"));
+            classes.put("mapped/C", createClass("mapped/C"));
+            RemappedJarWriter.write(input, output, classes, REMAPPER);
+        }
+
+        try (ZipFile zip = new ZipFile(output.toFile())) {
+            assertEquals(
+                List.of(
+                    "mapped/A.class",
+                    "BOOT-INF/classes/mapped/B.class",
+                    "META-INF/versions/9/mapped/A.class",
+                    "mapped/C.class",
+                    "invalid.class"
+                ),
+                zip.stream().map(ZipEntry::getName).toList()
+            );
+            assertEquals("mapped/B", new ClassReader(read(zip, "BOOT-INF/classes/mapped/B.class")).getClassName());
+            assertArrayEquals(entries.get("invalid.class"), read(zip, "invalid.class"));
+        }
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static Path writeJar(Path path, Map<String, byte[]> entries) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (var entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+
+        return path;
+    }
+
+    private static byte[] createClass(String name) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.commons.Remapper;
+
+import java.util.Objects;
+
+/**
+ * A remapper that memoizes the class names, descriptors and member names mapped by another remapper.
+ *
+ * <p>Each kind of name has a bounded direct-mapped cache: a key is stored in a single slot
+ * determined by its hash, replacing whatever was there before. The caches are lock-free and safe
+ * to use from multiple threads if the delegate remapper is. Cache hits don't allocate.
+ *
+ * <p>The delegate must be deterministic, since cached results are reused as is.
+ * Other methods, such as {@link #mapSignature}, are forwarded to the delegate without caching.
+ */
+public final class CachingRemapper extends Remapper {
+    /**
+     * The default number of entries in each cache ({@value}).
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Remapper delegate;
+    private final Cache classes;
+    private final Cache descriptors;
+    private final Cache methodDescriptors;
+    private final Cache methods;
+    private final Cache fields;
+
+    /**
+     * Creates a caching remapper with the {@linkplain #DEFAULT_CAPACITY default capacity}.
+     *
+     * @param delegate the remapper whose results are cached
+     */
+    public CachingRemapper(Remapper delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a caching remapper.
+     *
+     * @param delegate the remapper whose results are cached
+     * @param capacity the number of entries in each cache, rounded up to a power of two
+     */
+    public CachingRemapper(Remapper delegate, int capacity) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+
+        int slots = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.classes = new Cache(slots);
+        this.descriptors = new Cache(slots);
+        this.methodDescriptors = new Cache(slots);
+        this.methods = new Cache(slots);
+        this.fields = new Cache(slots);
+    }
+
+    @Override
+    public String map(String internalName) {
+        if (internalName == null) return delegate.map(null);
+
+        String mapped = classes.get(internalName, null, null);
+        if (mapped != null) return mapped;
+
+        mapped = delegate.map(internalName);
+        classes.put(internalName, null, null, mapped);
+        return mapped;
+    }
+
+    @Override
+    public String mapDesc(String descriptor) {
+        String mapped = descriptors.get(descriptor, null, null);
+        if (mapped != null) return mapped;
+
+        mapped = delegate.mapDesc(descriptor);
+        descriptors.put(descriptor, null, null, mapped);
+        return mapped;
+    }
+
+    @Override
+    public String mapMethodDesc(String methodDescriptor) {
+        String mapped = methodDescriptors.get(methodDescriptor, null, null);
+        if (mapped != null) return mapped;
+
+        mapped = delegate.mapMethodDesc(methodDescriptor);
+        methodDescriptors.put(methodDescriptor, null, null, mapped);
+        return mapped;
+    }
+
+    @Override
+    public String mapMethodName(String owner, String name, String descriptor) {
+        String mapped = methods.get(owner, name, descriptor);
+        if (mapped != null) return mapped;
+
+        mapped = delegate.mapMethodName(owner, name, descriptor);
+        methods.put(owner, name, descriptor, mapped);
+        return mapped;
+    }
+
+    @Override
+    public String mapFieldName(String owner, String name, String descriptor) {
+        String mapped = fields.get(owner, name, descriptor);
+        if (mapped != null) return mapped;
+
+        mapped = delegate.mapFieldName(owner, name, descriptor);
+        fields.put(owner, name, descriptor, mapped);
+        return mapped;
+    }
+
+    @Override
+    public String mapType(String internalName) {
+        return delegate.mapType(internalName);
+    }
+
+    @Override
+    public String[] mapTypes(String[] internalNames) {
+        return delegate.mapTypes(internalNames);
+    }
+
+    @Override
+    public Object mapValue(Object value) {
+        return delegate.mapValue(value);
+    }
+
+    @Override
+    public String mapSignature(String signature, boolean typeSignature) {
+        return delegate.mapSignature(signature, typeSignature);
+    }
+
+    @Override
+    public String mapAnnotationAttributeName(String descriptor, String name) {
+        return delegate.mapAnnotationAttributeName(descriptor, name);
+    }
+
+    @Override
+    public String mapInnerClassName(String name, String ownerName, String innerName) {
+        return delegate.mapInnerClassName(name, ownerName, innerName);
+    }
+
+    @Override
+    public String mapInvokeDynamicMethodName(String name, String descriptor) {
+        return delegate.mapInvokeDynamicMethodName(name, descriptor);
+    }
+
+    @Override
+    public String mapRecordComponentName(String owner, String name, String descriptor) {
+        return delegate.mapRecordComponentName(owner, name, descriptor);
+    }
+
+    @Override
+    public String mapPackageName(String name) {
+        return delegate.mapPackageName(name);
+    }
+
+    @Override
+    public String mapModuleName(String name) {
+        return delegate.mapModuleName(name);
+    }
+
+    private static final class Cache {
+        // Entries are immutable, so racy reads and writes of the slots are safe.
+        private final Entry[] entries;
+        private final int mask;
+
+        Cache(int slots) {
+            this.entries = new Entry[slots];
+            this.mask = slots - 1;
+        }
+
+        @Nullable String get(@Nullable String first, @Nullable String second, @Nullable String third) {
+            Entry entry = entries[index(first, second, third)];
+
+            if (entry != null && Objects.equals(entry.first, first) && Objects.equals(entry.second, second)
+                && Objects.equals(entry.third, third)) {
+                return entry.value;
+            }
+
+            return null;
+        }
+
+        void put(@Nullable String first, @Nullable String second, @Nullable String third, @Nullable String value) {
+            if (value == null) return;
+            entries[index(first, second, third)] = new Entry(first, second, third, value);
+        }
+
+        private int index(@Nullable String first, @Nullable String second, @Nullable String third) {
+            int hash = Objects.hashCode(first);
+            hash = 31 * hash + Objects.hashCode(second);
+            hash = 31 * hash + Objects.hashCode(third);
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    private record Entry(@Nullable String first, @Nullable String second, @Nullable String third, String value) {
+    }
+}
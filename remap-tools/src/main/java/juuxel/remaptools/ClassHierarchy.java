@@ -0,0 +1,281 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An index of the direct supertypes of classes and of the members that their subtypes don't inherit.
+ *
+ * <p>A class hierarchy lets a {@link MappingTreeRemapper} resolve members that are referenced through
+ * a subtype of the class that declares them. The class names must be in the input namespace of the remapper.
+ * Private members and static interface methods aren't inherited, so they're skipped when resolving
+ * members in supertypes. Instances are immutable and safe to use from multiple threads.
+ */
+public final class ClassHierarchy {
+    private static final String[] NO_INTERFACES = new String[0];
+    private static final char FIELD_SEPARATOR = ':';
+
+    private final Map<String, ClassInfo> classes;
+
+    private ClassHierarchy(Map<String, ClassInfo> classes) {
+        this.classes = classes;
+    }
+
+    /**
+     * {@return whether this hierarchy contains a class}
+     *
+     * @param name the internal name of the class
+     */
+    public boolean contains(String name) {
+        return classes.containsKey(name);
+    }
+
+    /**
+     * {@return the internal name of the superclass of a class, or {@code null} if unknown or absent}
+     *
+     * @param name the internal name of the class
+     */
+    public @Nullable String getSuperclass(String name) {
+        ClassInfo info = classes.get(name);
+        return info != null ? info.superName : null;
+    }
+
+    /**
+     * {@return the internal names of the direct superinterfaces of a class, or an empty list if unknown}
+     *
+     * @param name the internal name of the class
+     */
+    public List<String> getInterfaces(String name) {
+        ClassInfo info = classes.get(name);
+        return info != null ? List.of(info.interfaces) : List.of();
+    }
+
+    String @Nullable [] getInterfaceArray(String name) {
+        ClassInfo info = classes.get(name);
+        return info != null ? info.interfaces : null;
+    }
+
+    /**
+     * {@return whether a method declared in a class is inherited by its subtypes}
+     * Methods of unknown classes are assumed to be inherited.
+     *
+     * @param owner      the internal name of the declaring class
+     * @param name       the name of the method
+     * @param descriptor the descriptor of the method
+     */
+    public boolean isMethodInherited(String owner, String name, String descriptor) {
+        ClassInfo info = classes.get(owner);
+        return info == null || !info.nonInheritedMembers.contains(name + descriptor);
+    }
+
+    /**
+     * {@return whether a field declared in a class is inherited by its subtypes}
+     * Fields of unknown classes are assumed to be inherited.
+     * If the descriptor is {@code null}, all fields with the name must be inherited.
+     *
+     * @param owner      the internal name of the declaring class
+     * @param name       the name of the field
+     * @param descriptor the descriptor of the field, or {@code null} if unknown
+     */
+    public boolean isFieldInherited(String owner, String name, @Nullable String descriptor) {
+        ClassInfo info = classes.get(owner);
+        if (info == null || info.nonInheritedMembers.isEmpty()) return true;
+        if (descriptor != null) return !info.nonInheritedMembers.contains(name + FIELD_SEPARATOR + descriptor);
+
+        String prefix = name + FIELD_SEPARATOR;
+
+        for (String member : info.nonInheritedMembers) {
+            if (member.startsWith(prefix)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a builder for a {@code ClassHierarchy}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param nonInheritedMembers the non-inherited methods as {@code name + descriptor}
+     *                            and fields as {@code name + ':' + descriptor}
+     */
+    private record ClassInfo(@Nullable String superName, String[] interfaces, Set<String> nonInheritedMembers) {
+    }
+
+    /**
+     * A builder for a {@link ClassHierarchy}.
+     */
+    public static final class Builder {
+        private final Map<String, ClassInfo> classes = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a class to the hierarchy. If the class has already been added, it is replaced
+         * along with its {@linkplain #addNonInheritedMethod non-inherited members}.
+         *
+         * @param name       the internal name of the class
+         * @param superName  the internal name of the superclass, or {@code null} if there is none
+         * @param interfaces the internal names of the direct superinterfaces
+         * @return this builder
+         */
+        public Builder add(String name, @Nullable String superName, List<String> interfaces) {
+            Objects.requireNonNull(name, "name");
+            String[] array = interfaces.isEmpty() ? NO_INTERFACES : interfaces.toArray(String[]::new);
+            classes.put(name, new ClassInfo(superName, array, new HashSet<>()));
+            return this;
+        }
+
+        /**
+         * Marks a method of an added class as not inherited by its subtypes,
+         * such as a private method or a static interface method.
+         *
+         * @param owner      the internal name of the declaring class
+         * @param name       the name of the method
+         * @param descriptor the descriptor of the method
+         * @return this builder
+         * @throws IllegalArgumentException if the class hasn't been added
+         */
+        public Builder addNonInheritedMethod(String owner, String name, String descriptor) {
+            getClassInfo(owner).nonInheritedMembers.add(name + Objects.requireNonNull(descriptor, "descriptor"));
+            return this;
+        }
+
+        /**
+         * Marks a field of an added class as not inherited by its subtypes, such as a private field.
+         *
+         * @param owner      the internal name of the declaring class
+         * @param name       the name of the field
+         * @param descriptor the descriptor of the field
+         * @return this builder
+         * @throws IllegalArgumentException if the class hasn't been added
+         */
+        public Builder addNonInheritedField(String owner, String name, String descriptor) {
+            getClassInfo(owner).nonInheritedMembers.add(name + FIELD_SEPARATOR + Objects.requireNonNull(descriptor, "descriptor"));
+            return this;
+        }
+
+        private ClassInfo getClassInfo(String name) {
+            ClassInfo info = classes.get(name);
+            if (info == null) throw new IllegalArgumentException("Class " + name + " hasn't been added");
+            return info;
+        }
+
+        /**
+         * Adds the classes in a jar or a directory to the hierarchy.
+         * Only the headers and member declarations of the class files are read.
+         *
+         * <p>Classes that have already been added are not replaced, so that, like on a classpath,
+         * the first occurrence of a class wins.
+         *
+         * @param path the path to the jar or directory
+         * @return this builder
+         */
+        public Builder scan(Path path) throws IOException {
+            if (Files.isDirectory(path)) {
+                List<Path> files;
+
+                try (Stream<Path> stream = Files.walk(path)) {
+                    files = stream.filter(file -> file.toString().endsWith(".class")).toList();
+                }
+
+                for (Path file : files) {
+                    addClassFile(Files.readAllBytes(file));
+                }
+            } else {
+                try (ZipFile zip = new ZipFile(path.toFile())) {
+                    Enumeration<? extends ZipEntry> entries = zip.entries();
+
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        String name = entry.getName();
+
+                        // Multi-release and other metadata entries don't belong to the base hierarchy.
+                        if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/")) continue;
+
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            addClassFile(in.readAllBytes());
+                        }
+                    }
+                }
+            }
+
+            return this;
+        }
+
+        private void addClassFile(byte[] bytes) {
+            ClassReader reader = new ClassReader(bytes);
+            if (classes.containsKey(reader.getClassName())) return;
+
+            String[] interfaces = reader.getInterfaces();
+            ClassInfo info = new ClassInfo(reader.getSuperName(), interfaces.length == 0 ? NO_INTERFACES : interfaces, new HashSet<>());
+            boolean isInterface = (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
+
+            reader.accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public @Nullable FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                    if ((access & Opcodes.ACC_PRIVATE) != 0) info.nonInheritedMembers.add(name + FIELD_SEPARATOR + descriptor);
+                    return null;
+                }
+
+                @Override
+                public @Nullable MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    if ((access & Opcodes.ACC_PRIVATE) != 0 || (isInterface && (access & Opcodes.ACC_STATIC) != 0)) {
+                        info.nonInheritedMembers.add(name + descriptor);
+                    }
+
+                    return null;
+                }
+            }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+            classes.put(reader.getClassName(), info);
+        }
+
+        /**
+         * Builds the class hierarchy.
+         *
+         * @return the built class hierarchy
+         */
+        public ClassHierarchy build() {
+            Map<String, ClassInfo> copy = new HashMap<>();
+
+            for (var entry : classes.entrySet()) {
+                ClassInfo info = entry.getValue();
+                copy.put(entry.getKey(), new ClassInfo(info.superName, info.interfaces, Set.copyOf(info.nonInheritedMembers)));
+            }
+
+            return new ClassHierarchy(Map.copyOf(copy));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A mapping lookup that queries {@link CompactMappings}.
+ */
+record CompactMappingLookup(CompactMappings mappings, int from, int to) implements MappingLookup {
+    @Override
+    public @Nullable String mapClassName(String name) {
+        int classIndex = mappings.findClass(name, from);
+        return classIndex >= 0 ? mappings.getClassName(classIndex, to) : null;
+    }
+
+    @Override
+    public @Nullable String mapMethodName(String owner, String name, String descriptor) {
+        return mapMemberName(CompactMappings.KIND_METHOD, owner, name, descriptor);
+    }
+
+    @Override
+    public @Nullable String mapFieldName(String owner, String name, @Nullable String descriptor) {
+        return mapMemberName(CompactMappings.KIND_FIELD, owner, name, descriptor);
+    }
+
+    private @Nullable String mapMemberName(int kind, String owner, String name, @Nullable String descriptor) {
+        int classIndex = mappings.findClass(owner, from);
+        if (classIndex < 0) return null;
+
+        int memberIndex = mappings.findMember(classIndex, kind, name, descriptor, from);
+        return memberIndex >= 0 ? mappings.getMemberName(memberIndex, to) : null;
+    }
+}
@@ -0,0 +1,640 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.MappingFlag;
+import net.fabricmc.mappingio.MappingVisitor;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact, read-only representation of the names in a mapping tree.
+ *
+ * <p>All strings are deduplicated into a single UTF-8 string pool, and classes, members and method arguments
+ * and variables are stored in flat int-indexed tables together with per-namespace hash indices.
+ * Comments and metadata are stored as well, so {@linkplain #accept visiting} the mappings reproduces
+ * the tree they were created from.
+ * The data lives in a single {@link ByteBuffer} outside the Java heap: either a direct buffer
+ * when {@linkplain #of created from a tree}, or a memory-mapped file when {@linkplain #open opened from a file}.
+ *
+ * <p>Compact mappings can be used in place of a mapping tree
+ * with {@link MappingTreeRemapper#builder(CompactMappings)}. Instances are safe to use from multiple threads.
+ */
+public final class CompactMappings {
+    /**
+     * The version of the compact mapping file format ({@value}).
+     * Files written with other versions of the format can't be {@linkplain #open opened}.
+     */
+    public static final int VERSION = 3;
+
+    private static final int MAGIC = 0x5254434D; // RTCM
+    private static final int HEADER_INTS = 11;
+    private static final int NAMESPACE_HEADER_INTS = 5;
+    static final int KIND_FIELD = 0;
+    static final int KIND_METHOD = 1;
+    private static final int KIND_ARG = 0;
+    private static final int KIND_VAR = 1;
+
+    private final ByteBuffer data;
+    private final int namespaceCount;
+    private final int classCount;
+    private final int classTable;
+    private final int memberTable;
+    private final int localTable;
+    private final int metadataTable;
+    private final int metadataCount;
+    private final int pool;
+    private final String srcNamespace;
+    private final List<String> dstNamespaces;
+
+    private CompactMappings(ByteBuffer data) throws IOException {
+        this.data = data;
+
+        if (data.limit() < HEADER_INTS * 4 || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a compact mapping file");
+        } else if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported compact mapping version " + data.getInt(4) + ", expected " + VERSION);
+        }
+
+        namespaceCount = data.getInt(8);
+        classCount = data.getInt(12);
+        classTable = data.getInt(20);
+        memberTable = data.getInt(24);
+        localTable = data.getInt(28);
+        pool = data.getInt(32);
+        metadataTable = data.getInt(36);
+        metadataCount = data.getInt(40);
+
+        List<String> namespaces = new ArrayList<>(namespaceCount);
+        for (int ns = 0; ns < namespaceCount; ns++) {
+            namespaces.add(getString(data.getInt(namespaceHeader(ns))));
+        }
+
+        srcNamespace = namespaces.get(0);
+        dstNamespaces = Collections.unmodifiableList(namespaces.subList(1, namespaceCount));
+    }
+
+    /**
+     * Creates compact mappings from the contents of a mapping tree.
+     * The created mappings don't keep a reference to the tree.
+     *
+     * @param tree the mapping tree
+     * @return the created mappings
+     */
+    public static CompactMappings of(MappingTreeView tree) {
+        byte[] bytes = new Writer(tree).write();
+        ByteBuffer data = ByteBuffer.allocateDirect(bytes.length);
+        data.put(bytes).clear();
+
+        try {
+            return new CompactMappings(data.asReadOnlyBuffer());
+        } catch (IOException e) {
+            throw new AssertionError("Could not read freshly written compact mappings", e);
+        }
+    }
+
+    /**
+     * Opens compact mappings from a file written with {@link #write}.
+     * The file is memory-mapped, so it should not be modified while the mappings are in use.
+     *
+     * @param path the path to the file
+     * @return the opened mappings
+     * @throws IOException if the file could not be read or is not a compact mapping file
+     */
+    public static CompactMappings open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CompactMappings(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes these mappings to a file that can be {@linkplain #open opened} later.
+     *
+     * @param path the path to the file
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = data.duplicate().clear();
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Visits these mappings with a mapping visitor. This can be used to
+     * read compact mappings back into a {@link net.fabricmc.mappingio.tree.MemoryMappingTree}.
+     *
+     * @param visitor the visitor
+     */
+    public void accept(MappingVisitor visitor) throws IOException {
+        Set<MappingFlag> flags = visitor.getFlags();
+        boolean supplyFieldDstDescs = flags.contains(MappingFlag.NEEDS_DST_FIELD_DESC);
+        boolean supplyMethodDstDescs = flags.contains(MappingFlag.NEEDS_DST_METHOD_DESC);
+
+        do {
+            if (visitor.visitHeader()) {
+                visitor.visitNamespaces(srcNamespace, dstNamespaces);
+
+                for (int i = 0; i < metadataCount; i++) {
+                    int record = metadataTable + i * 8;
+                    visitor.visitMetadata(getString(data.getInt(record)), getString(data.getInt(record + 4)));
+                }
+            }
+
+            if (visitor.visitContent()) {
+                for (int i = 0; i < classCount; i++) {
+                    if (!visitor.visitClass(getClassName(i, 0))) continue;
+
+                    for (int ns = 1; ns < namespaceCount; ns++) {
+                        String name = getClassName(i, ns);
+                        if (name != null) visitor.visitDstName(MappedElementKind.CLASS, ns - 1, name);
+                    }
+
+                    if (!visitor.visitElementContent(MappedElementKind.CLASS)) continue;
+                    acceptComment(visitor, MappedElementKind.CLASS, data.getInt(classRecord(i) + (namespaceCount + 2) * 4));
+
+                    int end = getMemberStart(i) + getMemberCount(i);
+
+                    for (int member = getMemberStart(i); member < end; member++) {
+                        if (getMemberKind(member) == KIND_FIELD) {
+                            acceptMember(visitor, member, MappedElementKind.FIELD, supplyFieldDstDescs);
+                        } else if (acceptMember(visitor, member, MappedElementKind.METHOD, supplyMethodDstDescs)) {
+                            acceptLocals(visitor, member);
+                        }
+                    }
+                }
+            }
+        } while (!visitor.visitEnd());
+    }
+
+    private boolean acceptMember(MappingVisitor visitor, int member, MappedElementKind kind, boolean supplyDstDescs) throws IOException {
+        String name = getMemberName(member, 0);
+        String desc = getMemberDesc(member, 0);
+        boolean visit = kind == MappedElementKind.FIELD ? visitor.visitField(name, desc) : visitor.visitMethod(name, desc);
+        if (!visit) return false;
+
+        for (int ns = 1; ns < namespaceCount; ns++) {
+            String dstName = getMemberName(member, ns);
+            if (dstName != null) visitor.visitDstName(kind, ns - 1, dstName);
+
+            if (supplyDstDescs) {
+                String dstDesc = getMemberDesc(member, ns);
+                if (dstDesc != null) visitor.visitDstDesc(kind, ns - 1, dstDesc);
+            }
+        }
+
+        if (!visitor.visitElementContent(kind)) return false;
+        acceptComment(visitor, kind, data.getInt(memberRecord(member) + (2 * namespaceCount + 3) * 4));
+        return true;
+    }
+
+    private void acceptLocals(MappingVisitor visitor, int member) throws IOException {
+        int record = memberRecord(member) + (2 * namespaceCount + 1) * 4;
+        int start = data.getInt(record);
+        int end = start + data.getInt(record + 4);
+
+        for (int local = start; local < end; local++) {
+            int localRecord = localRecord(local);
+            MappedElementKind kind;
+            boolean visit;
+
+            if (data.getInt(localRecord) == KIND_ARG) {
+                kind = MappedElementKind.METHOD_ARG;
+                visit = visitor.visitMethodArg(data.getInt(localRecord + 4), data.getInt(localRecord + 8), getString(data.getInt(localRecord + 16)));
+            } else {
+                kind = MappedElementKind.METHOD_VAR;
+                visit = visitor.visitMethodVar(data.getInt(localRecord + 4), data.getInt(localRecord + 8), data.getInt(localRecord + 12), getString(data.getInt(localRecord + 16)));
+            }
+
+            if (!visit) continue;
+
+            for (int ns = 1; ns < namespaceCount; ns++) {
+                String name = getString(data.getInt(localRecord + 16 + ns * 4));
+                if (name != null) visitor.visitDstName(kind, ns - 1, name);
+            }
+
+            if (visitor.visitElementContent(kind)) {
+                acceptComment(visitor, kind, data.getInt(localRecord + 16 + namespaceCount * 4));
+            }
+        }
+    }
+
+    private void acceptComment(MappingVisitor visitor, MappedElementKind kind, int ref) throws IOException {
+        if (ref >= 0) visitor.visitComment(kind, getString(ref));
+    }
+
+    /**
+     * {@return the source namespace of these mappings}
+     */
+    public String getSrcNamespace() {
+        return srcNamespace;
+    }
+
+    /**
+     * {@return the destination namespaces of these mappings}
+     */
+    public List<String> getDstNamespaces() {
+        return dstNamespaces;
+    }
+
+    // Namespace indices: 0 is the source namespace, and destination namespaces follow it.
+    int getNamespaceIndex(String namespace) {
+        if (srcNamespace.equals(namespace)) return 0;
+        int index = dstNamespaces.indexOf(namespace);
+        return index >= 0 ? index + 1 : -1;
+    }
+
+    int getClassCount() {
+        return classCount;
+    }
+
+    @Nullable String getClassName(int classIndex, int ns) {
+        return getString(data.getInt(classRecord(classIndex) + ns * 4));
+    }
+
+    int getMemberStart(int classIndex) {
+        return data.getInt(classRecord(classIndex) + namespaceCount * 4);
+    }
+
+    int getMemberCount(int classIndex) {
+        return data.getInt(classRecord(classIndex) + namespaceCount * 4 + 4);
+    }
+
+    int getMemberKind(int memberIndex) {
+        return data.getInt(memberRecord(memberIndex));
+    }
+
+    @Nullable String getMemberName(int memberIndex, int ns) {
+        return getString(data.getInt(memberRecord(memberIndex) + 4 + ns * 4));
+    }
+
+    @Nullable String getMemberDesc(int memberIndex, int ns) {
+        return getString(data.getInt(memberRecord(memberIndex) + 4 + (namespaceCount + ns) * 4));
+    }
+
+    /**
+     * Finds a class by its name in a namespace.
+     *
+     * @return the class index, or -1 if not found
+     */
+    int findClass(String name, int ns) {
+        int header = namespaceHeader(ns);
+        int index = data.getInt(header + 4);
+        int mask = data.getInt(header + 8) - 1;
+        int hash = name.hashCode();
+
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int slot = index + i * 8;
+            int classIndex = data.getInt(slot + 4) - 1;
+            if (classIndex < 0) return -1;
+
+            if (data.getInt(slot) == hash && stringEquals(data.getInt(classRecord(classIndex) + ns * 4), name)) {
+                return classIndex;
+            }
+        }
+    }
+
+    /**
+     * Finds a member by its owner, name and descriptor in a namespace.
+     * Members without a descriptor match any descriptor, and a {@code null} descriptor matches any member.
+     *
+     * @return the member index, or -1 if not found
+     */
+    int findMember(int classIndex, int kind, String name, @Nullable String desc, int ns) {
+        int header = namespaceHeader(ns);
+        int index = data.getInt(header + 12);
+        int mask = data.getInt(header + 16) - 1;
+        int hash = memberHash(classIndex, name.hashCode());
+        int start = getMemberStart(classIndex);
+        int end = start + getMemberCount(classIndex);
+        int fallback = -1;
+
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int slot = index + i * 8;
+            int memberIndex = data.getInt(slot + 4) - 1;
+            if (memberIndex < 0) return fallback;
+            if (data.getInt(slot) != hash || memberIndex < start || memberIndex >= end) continue;
+
+            int record = memberRecord(memberIndex);
+            if (data.getInt(record) != kind || !stringEquals(data.getInt(record + 4 + ns * 4), name)) continue;
+
+            int descRef = data.getInt(record + 4 + (namespaceCount + ns) * 4);
+
+            if (desc == null || (descRef >= 0 && stringEquals(descRef, desc))) {
+                return memberIndex;
+            } else if (descRef < 0 && fallback < 0) {
+                fallback = memberIndex;
+            }
+        }
+    }
+
+    private int namespaceHeader(int ns) {
+        return (HEADER_INTS + ns * NAMESPACE_HEADER_INTS) * 4;
+    }
+
+    private int classRecord(int classIndex) {
+        return classTable + classIndex * (namespaceCount + 3) * 4;
+    }
+
+    private int memberRecord(int memberIndex) {
+        return memberTable + memberIndex * (2 * namespaceCount + 4) * 4;
+    }
+
+    private int localRecord(int localIndex) {
+        return localTable + localIndex * (namespaceCount + 5) * 4;
+    }
+
+    private @Nullable String getString(int ref) {
+        if (ref < 0) return null;
+        int length = data.getInt(pool + ref);
+        byte[] bytes = new byte[length];
+        data.get(pool + ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Compares a pooled string to a Java string without decoding the pooled string into a new object.
+    private boolean stringEquals(int ref, String s) {
+        if (ref < 0) return false;
+
+        int pos = pool + ref + 4;
+        int end = pos + data.getInt(pool + ref);
+        int length = s.length();
+        int i = 0;
+
+        while (pos < end) {
+            int b = data.get(pos++) & 0xFF;
+            int c;
+
+            if (b < 0x80) {
+                c = b;
+            } else if (b < 0xE0) {
+                c = (b & 0x1F) << 6 | (data.get(pos++) & 0x3F);
+            } else if (b < 0xF0) {
+                c = (b & 0x0F) << 12 | (data.get(pos++) & 0x3F) << 6 | (data.get(pos++) & 0x3F);
+            } else {
+                int codePoint = (b & 0x07) << 18 | (data.get(pos++) & 0x3F) << 12
+                    | (data.get(pos++) & 0x3F) << 6 | (data.get(pos++) & 0x3F);
+                if (i + 1 >= length || s.charAt(i) != Character.highSurrogate(codePoint)
+                    || s.charAt(i + 1) != Character.lowSurrogate(codePoint)) {
+                    return false;
+                }
+
+                i += 2;
+                continue;
+            }
+
+            if (i >= length || s.charAt(i) != c) return false;
+            i++;
+        }
+
+        return i == length;
+    }
+
+    private static int memberHash(int classIndex, int nameHash) {
+        return 31 * classIndex + nameHash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableCapacity(int entries) {
+        // Keep the load factor at or below 0.5 to keep probe sequences short.
+        return Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1;
+    }
+
+    private static final class Writer {
+        private final MappingTreeView tree;
+        private final int namespaceCount;
+        private final Map<String, Integer> stringRefs = new HashMap<>();
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final List<MappingTreeView.ClassMappingView> classes;
+        private final List<MappingTreeView.MemberMappingView> members = new ArrayList<>();
+        private final List<Integer> memberKinds = new ArrayList<>();
+        private final List<MappingTreeView.ElementMappingView> locals = new ArrayList<>();
+        private final List<Map.Entry<String, String>> metadata;
+
+        Writer(MappingTreeView tree) {
+            this.tree = tree;
+            this.namespaceCount = tree.getDstNamespaces().size() + 1;
+            this.classes = List.copyOf(tree.getClasses());
+            this.metadata = List.copyOf(tree.getMetadata());
+        }
+
+        private int getNamespaceId(int ns) {
+            return ns == 0 ? MappingTreeView.SRC_NAMESPACE_ID : ns - 1;
+        }
+
+        private int ref(@Nullable String s) {
+            if (s == null) return -1;
+
+            return stringRefs.computeIfAbsent(s, key -> {
+                int ref = pool.size();
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                int length = bytes.length;
+                pool.write(length >>> 24);
+                pool.write(length >>> 16);
+                pool.write(length >>> 8);
+                pool.write(length);
+                pool.writeBytes(bytes);
+                return ref;
+            });
+        }
+
+        byte[] write() {
+            for (var c : classes) {
+                for (var field : c.getFields()) {
+                    members.add(field);
+                    memberKinds.add(KIND_FIELD);
+                }
+
+                for (var method : c.getMethods()) {
+                    members.add(method);
+                    memberKinds.add(KIND_METHOD);
+                    locals.addAll(method.getArgs());
+                    locals.addAll(method.getVars());
+                }
+            }
+
+            int[] classIndexCapacities = new int[namespaceCount];
+            int[] memberIndexCapacities = new int[namespaceCount];
+            int indexInts = 0;
+
+            for (int ns = 0; ns < namespaceCount; ns++) {
+                int namespaceId = getNamespaceId(ns);
+                int namedClasses = 0;
+                int namedMembers = 0;
+
+                for (var c : classes) {
+                    if (c.getName(namespaceId) != null) namedClasses++;
+                }
+
+                for (var m : members) {
+                    if (m.getName(namespaceId) != null) namedMembers++;
+                }
+
+                classIndexCapacities[ns] = tableCapacity(namedClasses);
+                memberIndexCapacities[ns] = tableCapacity(namedMembers);
+                indexInts += 2 * (classIndexCapacities[ns] + memberIndexCapacities[ns]);
+            }
+
+            int classTable = (HEADER_INTS + namespaceCount * NAMESPACE_HEADER_INTS) * 4;
+            int memberTable = classTable + classes.size() * (namespaceCount + 3) * 4;
+            int localTable = memberTable + members.size() * (2 * namespaceCount + 4) * 4;
+            int metadataTable = localTable + locals.size() * (namespaceCount + 5) * 4;
+            int indices = metadataTable + metadata.size() * 2 * 4;
+            int[] table = new int[indices / 4 - HEADER_INTS - namespaceCount * NAMESPACE_HEADER_INTS + indexInts];
+
+            // Classes, members, locals and metadata
+            int cursor = 0;
+            int memberIndex = 0;
+            int localIndex = 0;
+
+            for (var c : classes) {
+                for (int ns = 0; ns < namespaceCount; ns++) {
+                    table[cursor++] = ref(c.getName(getNamespaceId(ns)));
+                }
+
+                int memberCount = c.getFields().size() + c.getMethods().size();
+                table[cursor++] = memberIndex;
+                table[cursor++] = memberCount;
+                table[cursor++] = ref(c.getComment());
+                memberIndex += memberCount;
+            }
+
+            for (int i = 0; i < members.size(); i++) {
+                var m = members.get(i);
+                table[cursor++] = memberKinds.get(i);
+
+                for (int ns = 0; ns < namespaceCount; ns++) {
+                    table[cursor++] = ref(m.getName(getNamespaceId(ns)));
+                }
+
+                for (int ns = 0; ns < namespaceCount; ns++) {
+                    table[cursor++] = ref(m.getDesc(getNamespaceId(ns)));
+                }
+
+                int localCount = m instanceof MappingTreeView.MethodMappingView method
+                    ? method.getArgs().size() + method.getVars().size() : 0;
+                table[cursor++] = localIndex;
+                table[cursor++] = localCount;
+                table[cursor++] = ref(m.getComment());
+                localIndex += localCount;
+            }
+
+            for (var local : locals) {
+                if (local instanceof MappingTreeView.MethodArgMappingView arg) {
+                    table[cursor++] = KIND_ARG;
+                    table[cursor++] = arg.getArgPosition();
+                    table[cursor++] = arg.getLvIndex();
+                    table[cursor++] = -1;
+                } else {
+                    var variable = (MappingTreeView.MethodVarMappingView) local;
+                    table[cursor++] = KIND_VAR;
+                    table[cursor++] = variable.getLvtRowIndex();
+                    table[cursor++] = variable.getLvIndex();
+                    table[cursor++] = variable.getStartOpIdx();
+                }
+
+                for (int ns = 0; ns < namespaceCount; ns++) {
+                    table[cursor++] = ref(local.getName(getNamespaceId(ns)));
+                }
+
+                table[cursor++] = ref(local.getComment());
+            }
+
+            for (var entry : metadata) {
+                table[cursor++] = ref(entry.getKey());
+                table[cursor++] = ref(entry.getValue());
+            }
+
+            // Indices
+            int[] namespaceHeaders = new int[namespaceCount * NAMESPACE_HEADER_INTS];
+
+            for (int ns = 0; ns < namespaceCount; ns++) {
+                int namespaceId = getNamespaceId(ns);
+                int classIndex = cursor;
+                int classMask = classIndexCapacities[ns] - 1;
+                cursor += 2 * classIndexCapacities[ns];
+
+                for (int i = 0; i < classes.size(); i++) {
+                    String name = classes.get(i).getName(namespaceId);
+                    if (name != null) insert(table, classIndex, classMask, name.hashCode(), i);
+                }
+
+                int memberIndexStart = cursor;
+                int memberMask = memberIndexCapacities[ns] - 1;
+                cursor += 2 * memberIndexCapacities[ns];
+                memberIndex = 0;
+
+                for (int i = 0; i < classes.size(); i++) {
+                    var c = classes.get(i);
+                    int memberCount = c.getFields().size() + c.getMethods().size();
+
+                    for (int j = 0; j < memberCount; j++, memberIndex++) {
+                        String name = members.get(memberIndex).getName(namespaceId);
+                        if (name != null) insert(table, memberIndexStart, memberMask, memberHash(i, name.hashCode()), memberIndex);
+                    }
+                }
+
+                int header = ns * NAMESPACE_HEADER_INTS;
+                namespaceHeaders[header] = ref(tree.getNamespaceName(namespaceId));
+                namespaceHeaders[header + 1] = classTable + classIndex * 4;
+                namespaceHeaders[header + 2] = classIndexCapacities[ns];
+                namespaceHeaders[header + 3] = classTable + memberIndexStart * 4;
+                namespaceHeaders[header + 4] = memberIndexCapacities[ns];
+            }
+
+            int poolOffset = classTable + table.length * 4;
+            ByteBuffer buffer = ByteBuffer.allocate(poolOffset + pool.size());
+            buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(namespaceCount)
+                .putInt(classes.size())
+                .putInt(members.size())
+                .putInt(classTable)
+                .putInt(memberTable)
+                .putInt(localTable)
+                .putInt(poolOffset)
+                .putInt(metadataTable)
+                .putInt(metadata.size());
+            buffer.asIntBuffer().put(namespaceHeaders).put(table);
+            buffer.position(poolOffset);
+            buffer.put(pool.toByteArray());
+            return buffer.array();
+        }
+
+        private static void insert(int[] table, int start, int mask, int hash, int value) {
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                int slot = start + i * 2;
+
+                if (table[slot + 1] == 0) {
+                    table[slot] = hash;
+                    table[slot + 1] = value + 1;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A mapping lookup that completes the input namespace lazily.
+ *
+ * <p>Names are first looked up with the primary lookup. If that fails, the name is looked up
+ * in the completion namespace among the elements that have no name in the input namespace,
+ * which is where eager completion would have filled it in.
+ *
+ * <p>The members of a class are indexed by their completed names when the class is first looked up,
+ * so a member lookup doesn't scan all members of its owner even if the results aren't cached.
+ */
+final class CompletingMappingLookup implements MappingLookup {
+    // ConcurrentHashMap doesn't allow null values, and names can't be empty.
+    private static final String NO_MAPPING = "";
+
+    private final MappingTreeView tree;
+    private final MappingLookup primary;
+    private final int from;
+    private final int to;
+    private final int completion;
+    private final @Nullable Map<Object, String> cache;
+    private final Map<MappingTreeView.ClassMappingView, MemberIndex> memberIndices = new ConcurrentHashMap<>();
+
+    CompletingMappingLookup(MappingTreeView tree, MappingLookup primary, int from, int to, int completion, boolean cache) {
+        this.tree = tree;
+        this.primary = primary;
+        this.from = from;
+        this.to = to;
+        this.completion = completion;
+        this.cache = cache ? new ConcurrentHashMap<>() : null;
+    }
+
+    @Override
+    public @Nullable String mapClassName(String name) {
+        var mapped = primary.mapClassName(name);
+        if (mapped != null) return mapped;
+
+        if (cache != null) return unwrap(cache.computeIfAbsent(name, key -> wrap(completeClassName(name))));
+        return completeClassName(name);
+    }
+
+    @Override
+    public @Nullable String mapMethodName(String owner, String name, String descriptor) {
+        var mapped = primary.mapMethodName(owner, name, descriptor);
+        if (mapped != null) return mapped;
+
+        if (cache != null) {
+            var key = new MemberKey(true, owner, name, descriptor);
+            return unwrap(cache.computeIfAbsent(key, k -> wrap(completeMemberName(true, owner, name, descriptor))));
+        }
+
+        return completeMemberName(true, owner, name, descriptor);
+    }
+
+    @Override
+    public @Nullable String mapFieldName(String owner, String name, @Nullable String descriptor) {
+        var mapped = primary.mapFieldName(owner, name, descriptor);
+        if (mapped != null) return mapped;
+
+        if (cache != null) {
+            var key = new MemberKey(false, owner, name, descriptor);
+            return unwrap(cache.computeIfAbsent(key, k -> wrap(completeMemberName(false, owner, name, descriptor))));
+        }
+
+        return completeMemberName(false, owner, name, descriptor);
+    }
+
+    private @Nullable String completeClassName(String name) {
+        var mapping = findCompletedClass(name);
+        return mapping != null ? mapping.getName(to) : null;
+    }
+
+    private @Nullable String completeMemberName(boolean method, String owner, String name, @Nullable String descriptor) {
+        var ownerMapping = findClass(owner);
+        if (ownerMapping == null) return null;
+
+        // Either the member or its owner may have been completed, or the descriptor may refer
+        // to completed classes, so compare the members' completed names and descriptors directly.
+        var index = memberIndices.computeIfAbsent(ownerMapping, this::indexMembers);
+        var members = (method ? index.methods() : index.fields()).getOrDefault(name, List.of());
+
+        for (MappingTreeView.MemberMappingView member : members) {
+            String srcDesc = member.getSrcDesc();
+            if (descriptor == null || srcDesc == null || descriptor.equals(getCompletedDesc(srcDesc))) {
+                return member.getName(to);
+            }
+        }
+
+        return null;
+    }
+
+    private MemberIndex indexMembers(MappingTreeView.ClassMappingView owner) {
+        return new MemberIndex(indexByCompletedName(owner.getMethods()), indexByCompletedName(owner.getFields()));
+    }
+
+    /**
+     * {@return the members by their completed names} The members keep their order, so the first match
+     * is the same as when scanning all members.
+     */
+    private Map<String, List<MappingTreeView.MemberMappingView>> indexByCompletedName(Iterable<? extends MappingTreeView.MemberMappingView> members) {
+        Map<String, List<MappingTreeView.MemberMappingView>> index = new HashMap<>();
+
+        for (MappingTreeView.MemberMappingView member : members) {
+            String name = getCompletedName(member);
+            if (name != null) index.computeIfAbsent(name, key -> new ArrayList<>(1)).add(member);
+        }
+
+        return index;
+    }
+
+    private MappingTreeView.@Nullable ClassMappingView findClass(String name) {
+        var mapping = tree.getClass(name, from);
+        return mapping != null ? mapping : findCompletedClass(name);
+    }
+
+    private MappingTreeView.@Nullable ClassMappingView findCompletedClass(String name) {
+        var mapping = tree.getClass(name, completion);
+        return mapping != null && mapping.getName(from) == null ? mapping : null;
+    }
+
+    private @Nullable String getCompletedName(MappingTreeView.ElementMappingView element) {
+        String name = element.getName(from);
+        return name != null ? name : element.getName(completion);
+    }
+
+    /**
+     * Converts the class names in a source descriptor to the completed input namespace.
+     */
+    private String getCompletedDesc(String srcDesc) {
+        int start = srcDesc.indexOf('L');
+        if (start < 0) return srcDesc;
+
+        StringBuilder sb = new StringBuilder(srcDesc.length());
+        int last = 0;
+
+        while (start >= 0) {
+            int end = srcDesc.indexOf(';', start + 1);
+            if (end < 0) break;
+
+            String name = srcDesc.substring(start + 1, end);
+            var mapping = tree.getClass(name);
+            String completedName = mapping != null ? getCompletedName(mapping) : null;
+
+            sb.append(srcDesc, last, start + 1).append(completedName != null ? completedName : name);
+            last = end;
+            start = srcDesc.indexOf('L', end + 1);
+        }
+
+        return sb.append(srcDesc, last, srcDesc.length()).toString();
+    }
+
+    private static String wrap(@Nullable String name) {
+        return name != null ? name : NO_MAPPING;
+    }
+
+    private static @Nullable String unwrap(String name) {
+        return !name.isEmpty() ? name : null;
+    }
+
+    private record MemberIndex(Map<String, List<MappingTreeView.MemberMappingView>> methods,
+                               Map<String, List<MappingTreeView.MemberMappingView>> fields) {
+    }
+
+    private record MemberKey(boolean method, String owner, String name, @Nullable String descriptor) {
+    }
+}
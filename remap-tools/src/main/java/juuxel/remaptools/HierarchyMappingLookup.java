@@ -0,0 +1,140 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A mapping lookup that resolves inherited members through a {@link ClassHierarchy}.
+ *
+ * <p>Members are first looked up in the referenced owner. If that fails, they are looked up
+ * in the supertypes of the owner in the order of JVM member resolution: methods in the superclasses
+ * and then in the superinterfaces, and fields in the superinterfaces of each class before its superclass.
+ * Members that the hierarchy marks as {@linkplain ClassHierarchy#isMethodInherited not inherited}, such as
+ * private ones, are skipped in supertypes. Cycles in malformed hierarchies are ignored.
+ * The results of the supertype searches are cached per owner, name and descriptor.
+ */
+final class HierarchyMappingLookup implements MappingLookup {
+    // ConcurrentHashMap doesn't allow null values, and names can't be empty.
+    private static final String NO_MAPPING = "";
+
+    private final MappingLookup primary;
+    private final ClassHierarchy hierarchy;
+    private final Map<MemberKey, String> cache = new ConcurrentHashMap<>();
+
+    HierarchyMappingLookup(MappingLookup primary, ClassHierarchy hierarchy) {
+        this.primary = primary;
+        this.hierarchy = hierarchy;
+    }
+
+    @Override
+    public @Nullable String mapClassName(String name) {
+        return primary.mapClassName(name);
+    }
+
+    @Override
+    public @Nullable String mapMethodName(String owner, String name, String descriptor) {
+        var mapped = primary.mapMethodName(owner, name, descriptor);
+        if (mapped != null) return mapped;
+
+        // Constructors and static initializers are never inherited.
+        if (name.startsWith("<") || !hierarchy.contains(owner)) return null;
+
+        var key = new MemberKey(true, owner, name, descriptor);
+        return unwrap(cache.computeIfAbsent(key, k -> wrap(resolveMethod(owner, name, descriptor))));
+    }
+
+    @Override
+    public @Nullable String mapFieldName(String owner, String name, @Nullable String descriptor) {
+        var mapped = primary.mapFieldName(owner, name, descriptor);
+        if (mapped != null) return mapped;
+        if (!hierarchy.contains(owner)) return null;
+
+        var key = new MemberKey(false, owner, name, descriptor);
+        return unwrap(cache.computeIfAbsent(key, k -> wrap(resolveField(owner, name, descriptor, new HashSet<>()))));
+    }
+
+    private @Nullable String resolveMethod(String owner, String name, String descriptor) {
+        var interfaces = new ArrayDeque<String>();
+        Set<String> visited = new HashSet<>();
+
+        for (String c = owner; c != null && visited.add(c); c = hierarchy.getSuperclass(c)) {
+            if (!c.equals(owner) && hierarchy.isMethodInherited(c, name, descriptor)) {
+                var mapped = primary.mapMethodName(c, name, descriptor);
+                if (mapped != null) return mapped;
+            }
+
+            addInterfaces(interfaces, c);
+        }
+
+        visited.clear();
+
+        while (!interfaces.isEmpty()) {
+            String itf = interfaces.poll();
+            if (!visited.add(itf)) continue;
+
+            if (hierarchy.isMethodInherited(itf, name, descriptor)) {
+                var mapped = primary.mapMethodName(itf, name, descriptor);
+                if (mapped != null) return mapped;
+            }
+
+            addInterfaces(interfaces, itf);
+        }
+
+        return null;
+    }
+
+    private @Nullable String resolveField(String owner, String name, @Nullable String descriptor, Set<String> visited) {
+        for (String c = owner; c != null; c = hierarchy.getSuperclass(c)) {
+            if (!visited.add(c)) return null;
+
+            if (!c.equals(owner) && hierarchy.isFieldInherited(c, name, descriptor)) {
+                var mapped = primary.mapFieldName(c, name, descriptor);
+                if (mapped != null) return mapped;
+            }
+
+            String[] interfaces = hierarchy.getInterfaceArray(c);
+            if (interfaces == null) return null;
+
+            for (String itf : interfaces) {
+                if (visited.contains(itf)) continue;
+
+                var mapped = hierarchy.isFieldInherited(itf, name, descriptor) ? primary.mapFieldName(itf, name, descriptor) : null;
+                if (mapped == null) mapped = resolveField(itf, name, descriptor, visited);
+                if (mapped != null) return mapped;
+            }
+        }
+
+        return null;
+    }
+
+    private void addInterfaces(ArrayDeque<String> queue, String name) {
+        String[] interfaces = hierarchy.getInterfaceArray(name);
+        if (interfaces == null) return;
+
+        for (String itf : interfaces) {
+            queue.add(itf);
+        }
+    }
+
+    private static String wrap(@Nullable String name) {
+        return name != null ? name : NO_MAPPING;
+    }
+
+    private static @Nullable String unwrap(String name) {
+        return !name.isEmpty() ? name : null;
+    }
+
+    private record MemberKey(boolean method, String owner, String name, @Nullable String descriptor) {
+    }
+}
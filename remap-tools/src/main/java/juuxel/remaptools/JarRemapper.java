@@ -0,0 +1,269 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Remaps the classes in jars with a {@link Remapper}, such as a {@link MappingTreeRemapper}.
+ *
+ * <p>Class entries are remapped in parallel on an executor, and the output jar is written
+ * in a single pass in the order of the input jar while the following classes are being remapped.
+ * Only a {@linkplain Builder#maxPendingClasses bounded number of classes} are in flight at once,
+ * so memory use depends on the parallelism rather than the size of the jar.
+ * Other entries are copied with their original metadata. Instances are safe to use from multiple threads
+ * if the remapper is.
+ */
+public final class JarRemapper {
+    private static final String CLASS_SUFFIX = ".class";
+    private static final Pattern VERSIONED_CLASS = Pattern.compile("(META-INF/versions/\\d+/)(.+)");
+
+    private final Remapper remapper;
+    private final Executor executor;
+    private final int maxPendingClasses;
+
+    private JarRemapper(Remapper remapper, Executor executor, int maxPendingClasses) {
+        this.remapper = remapper;
+        this.executor = executor;
+        this.maxPendingClasses = maxPendingClasses;
+    }
+
+    /**
+     * Remaps a jar.
+     *
+     * @param input  the input jar
+     * @param output the output jar
+     */
+    public void remap(Path input, Path output) throws IOException {
+        try (ZipFile zip = new ZipFile(input.toFile());
+             ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            // Entries in input order, of which at most maxPendingClasses are classes being remapped or waiting to be written.
+            Deque<PendingEntry> pending = new ArrayDeque<>();
+            AtomicBoolean aborted = new AtomicBoolean();
+            int pendingClasses = 0;
+
+            try {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    CompletableFuture<RemappedClass> future = null;
+
+                    if (!entry.isDirectory() && name.endsWith(CLASS_SUFFIX)) {
+                        future = CompletableFuture.supplyAsync(() -> aborted.get() ? null : remapClass(zip, entry), executor);
+                        pendingClasses++;
+                    }
+
+                    pending.add(new PendingEntry(entry, future));
+
+                    // Write entries while the window is full or the next entry is ready.
+                    while (!pending.isEmpty() && (pendingClasses >= maxPendingClasses || isReady(pending.peek()))) {
+                        if (writeEntry(zip, out, pending.remove())) pendingClasses--;
+                    }
+                }
+
+                while (!pending.isEmpty()) {
+                    writeEntry(zip, out, pending.remove());
+                }
+            } catch (IOException | RuntimeException e) {
+                // Skip the classes that haven't started yet, and wait for the rest
+                // so that no tasks read from the input after it's closed.
+                aborted.set(true);
+
+                for (PendingEntry entry : pending) {
+                    if (entry.remappedClass != null) entry.remappedClass.handle((result, t) -> null).join();
+                }
+
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isReady(PendingEntry entry) {
+        return entry.remappedClass == null || entry.remappedClass.isDone();
+    }
+
+    /**
+     * Writes a pending entry.
+     *
+     * @return {@code true} if the entry was a remapped class
+     */
+    private static boolean writeEntry(ZipFile zip, ZipOutputStream out, PendingEntry entry) throws IOException {
+        if (entry.remappedClass == null) {
+            copyEntry(zip, out, entry.entry);
+            return false;
+        }
+
+        RemappedClass remapped = join(entry.remappedClass);
+        writeEntry(out, entry.entry, remapped.name, remapped.bytes);
+        return true;
+    }
+
+    private RemappedClass remapClass(ZipFile zip, ZipEntry entry) {
+        byte[] bytes;
+
+        try (InputStream in = zip.getInputStream(entry)) {
+            bytes = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + entry.getName(), e);
+        }
+
+        ClassReader reader = new ClassReader(bytes);
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(new ClassRemapper(writer, remapper), 0);
+
+        String name = entry.getName();
+        String remappedName = remapClassEntry(name.substring(0, name.length() - CLASS_SUFFIX.length())) + CLASS_SUFFIX;
+        return new RemappedClass(remappedName, writer.toByteArray());
+    }
+
+    private String remapClassEntry(String name) {
+        Matcher matcher = VERSIONED_CLASS.matcher(name);
+        return matcher.matches() ? matcher.group(1) + remapper.map(matcher.group(2)) : remapper.map(name);
+    }
+
+    private static RemappedClass join(CompletableFuture<RemappedClass> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw e;
+        }
+    }
+
+    private static void copyEntry(ZipFile zip, ZipOutputStream out, ZipEntry entry) throws IOException {
+        ZipEntry copy = new ZipEntry(entry);
+        // The compressed size depends on the compressor, so let the output stream compute it.
+        if (copy.getMethod() != ZipEntry.STORED) copy.setCompressedSize(-1);
+        out.putNextEntry(copy);
+
+        try (InputStream in = zip.getInputStream(entry)) {
+            in.transferTo(out);
+        }
+
+        out.closeEntry();
+    }
+
+    private static void writeEntry(ZipOutputStream out, ZipEntry original, String name, byte[] bytes) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(original.getTime());
+
+        if (original.getMethod() == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            entry.setCompressedSize(bytes.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    /**
+     * Creates a builder for a {@code JarRemapper}.
+     *
+     * @param remapper the remapper for the class files
+     * @return the builder
+     */
+    public static Builder builder(Remapper remapper) {
+        return new Builder(Objects.requireNonNull(remapper, "remapper"));
+    }
+
+    private record PendingEntry(ZipEntry entry, @Nullable CompletableFuture<RemappedClass> remappedClass) {
+    }
+
+    private record RemappedClass(String name, byte[] bytes) {
+    }
+
+    /**
+     * A builder for a {@link JarRemapper}.
+     */
+    public static final class Builder {
+        private final Remapper remapper;
+        private Executor executor = ForkJoinPool.commonPool();
+        private int maxPendingClasses = 0;
+
+        private Builder(Remapper remapper) {
+            this.remapper = remapper;
+        }
+
+        /**
+         * Sets the executor that remaps the classes. Defaults to the {@linkplain ForkJoinPool#commonPool() common pool}.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of classes that are being remapped or waiting to be written at once.
+         * This bounds the memory used for remapped classes, regardless of the size of the jar.
+         * Defaults to twice the parallelism of the executor if it's a {@link ForkJoinPool},
+         * or twice the number of available processors otherwise.
+         *
+         * @param maxPendingClasses the maximum number of pending classes
+         * @return this builder
+         */
+        public Builder maxPendingClasses(int maxPendingClasses) {
+            if (maxPendingClasses <= 0) {
+                throw new IllegalArgumentException("Maximum pending class count must be positive, got " + maxPendingClasses);
+            }
+
+            this.maxPendingClasses = maxPendingClasses;
+            return this;
+        }
+
+        /**
+         * Builds the jar remapper.
+         *
+         * @return the built jar remapper
+         */
+        public JarRemapper build() {
+            int maxPendingClasses = this.maxPendingClasses;
+
+            if (maxPendingClasses == 0) {
+                int parallelism = executor instanceof ForkJoinPool pool ? pool.getParallelism() : Runtime.getRuntime().availableProcessors();
+                maxPendingClasses = 2 * parallelism;
+            }
+
+            return new JarRemapper(remapper, executor, maxPendingClasses);
+        }
+    }
+}
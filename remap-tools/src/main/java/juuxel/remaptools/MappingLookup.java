@@ -0,0 +1,22 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A source of mapped names for {@link MappingTreeRemapper}.
+ *
+ * <p>All methods return {@code null} if the element has no mapping in the output namespace.
+ */
+interface MappingLookup {
+    @Nullable String mapClassName(String name);
+
+    @Nullable String mapMethodName(String owner, String name, String descriptor);
+
+    @Nullable String mapFieldName(String owner, String name, @Nullable String descriptor);
+}
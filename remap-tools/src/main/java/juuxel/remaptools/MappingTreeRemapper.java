@@ -18,17 +18,13 @@ import java.util.Map;
 import java.util.Objects;
 
 /**
- * A remapper that wraps {@link MappingTreeView}.
+ * A remapper that wraps {@link MappingTreeView} or {@link CompactMappings}.
  */
 public final class MappingTreeRemapper extends Remapper {
-    private final MappingTreeView tree;
-    private final int from;
-    private final int to;
-
-    private MappingTreeRemapper(MappingTreeView tree, String from, String to) {
-        this.tree = Objects.requireNonNull(tree, "tree");
-        this.from = getNamespaceId(tree, Objects.requireNonNull(from, "from"));
-        this.to = getNamespaceId(tree, Objects.requireNonNull(to, "to"));
+    private final MappingLookup lookup;
+
+    private MappingTreeRemapper(MappingLookup lookup) {
+        this.lookup = lookup;
     }
 
     private static int getNamespaceId(MappingTreeView tree, String namespace) {
@@ -44,32 +40,35 @@ public final class MappingTreeRemapper extends Remapper {
         return id;
     }
 
-    private String getNameOrDefault(MappingTreeView.ElementMappingView element, String defaultValue) {
-        var targetName = element.getName(to);
-        return targetName != null ? targetName : defaultValue;
+    private static int getNamespaceIndex(CompactMappings mappings, String namespace) {
+        int index = mappings.getNamespaceIndex(namespace);
+
+        if (index < 0) {
+            throw new IllegalArgumentException(
+                "Namespace '" + namespace +
+                    "' not present in compact mappings. Available: src: " + mappings.getSrcNamespace() +
+                    ", dst: " + mappings.getDstNamespaces());
+        }
+
+        return index;
     }
 
     @Override
     public String map(String internalName) {
-        return tree.mapClassName(internalName, from, to);
+        var mapped = lookup.mapClassName(internalName);
+        return mapped != null ? mapped : internalName;
     }
 
     @Override
     public String mapMethodName(String owner, String name, String descriptor) {
-        var ownerMapping = tree.getClass(owner, from);
-        if (ownerMapping == null) return name;
-
-        var mapping = ownerMapping.getMethod(name, descriptor, from);
-        return mapping != null ? getNameOrDefault(mapping, name) : name;
+        var mapped = lookup.mapMethodName(owner, name, descriptor);
+        return mapped != null ? mapped : name;
     }
 
     @Override
     public String mapFieldName(String owner, String name, String descriptor) {
-        var ownerMapping = tree.getClass(owner, from);
-        if (ownerMapping == null) return name;
-
-        var mapping = ownerMapping.getField(name, descriptor, from);
-        return mapping != null ? getNameOrDefault(mapping, name) : name;
+        var mapped = lookup.mapFieldName(owner, name, descriptor);
+        return mapped != null ? mapped : name;
     }
 
     @Override
@@ -84,21 +83,38 @@ public final class MappingTreeRemapper extends Remapper {
      * @return the builder
      */
     public static Builder builder(MappingTreeView tree) {
-        return new Builder(Objects.requireNonNull(tree, "tree"));
+        return new Builder(Objects.requireNonNull(tree, "tree"), null);
+    }
+
+    /**
+     * Creates a builder for a {@code MappingTreeRemapper} backed by compact mappings.
+     * Namespace completion is not supported for compact mappings.
+     *
+     * @param mappings the backing compact mappings
+     * @return the builder
+     */
+    public static Builder builder(CompactMappings mappings) {
+        return new Builder(null, Objects.requireNonNull(mappings, "mappings"));
     }
 
     /**
      * A builder for a {@link MappingTreeRemapper}.
      */
     public static final class Builder {
-        private final MappingTreeView tree;
+        private final @Nullable MappingTreeView tree;
+        private final @Nullable CompactMappings compactMappings;
         private @Nullable String from;
         private @Nullable String to;
         private boolean completeNamespaces = false;
         private @Nullable String completionNamespace;
+        private boolean precompute = false;
+        private boolean lazyCompletion = false;
+        private boolean cacheCompletions = false;
+        private @Nullable ClassHierarchy hierarchy;
 
-        private Builder(MappingTreeView tree) {
+        private Builder(@Nullable MappingTreeView tree, @Nullable CompactMappings compactMappings) {
             this.tree = tree;
+            this.compactMappings = compactMappings;
         }
 
         /**
@@ -138,6 +154,52 @@ public final class MappingTreeRemapper extends Remapper {
             return this;
         }
 
+        /**
+         * Makes {@linkplain #completeNamespaces() namespace completion} lazy. Instead of copying
+         * the mapping tree when this remapper is built, names that are missing in the input namespace
+         * are looked up in the completion namespace when they're remapped.
+         *
+         * <p>This has no effect unless namespace completion is enabled.
+         *
+         * @param cache whether names found in the completion namespace should be cached
+         * @return this builder
+         */
+        public Builder lazyCompletion(boolean cache) {
+            this.lazyCompletion = true;
+            this.cacheCompletions = cache;
+            return this;
+        }
+
+        /**
+         * Enables precomputation. When this remapper is {@linkplain #build built},
+         * the mappings between the input and output namespaces are compiled into flat hash tables,
+         * so that each lookup is a single table probe without allocations.
+         *
+         * <p>Building a precomputed remapper takes longer, but it pays off when remapping
+         * a large number of member references. The built remapper doesn't keep a reference to
+         * the mapping tree, so later changes to the tree won't be reflected in it.
+         *
+         * @return this builder
+         */
+        public Builder precompute() {
+            this.precompute = true;
+            return this;
+        }
+
+        /**
+         * Enables inheritance-aware member resolution. Fields and methods that aren't mapped in
+         * their referenced owner are looked up in the owner's supertypes, and the results are cached.
+         *
+         * <p>The class names in the hierarchy must be in the input namespace.
+         *
+         * @param hierarchy the class hierarchy of the remapped classes and their classpath
+         * @return this builder
+         */
+        public Builder hierarchy(ClassHierarchy hierarchy) {
+            this.hierarchy = Objects.requireNonNull(hierarchy, "hierarchy");
+            return this;
+        }
+
         /**
          * Builds this remapper.
          *
@@ -146,24 +208,51 @@ public final class MappingTreeRemapper extends Remapper {
         public MappingTreeRemapper build() {
             Objects.requireNonNull(from, "missing input namespace");
             Objects.requireNonNull(to, "missing output namespace");
-            MappingTreeView tree;
+            MappingLookup lookup = compactMappings != null ? createCompactLookup(compactMappings) : createTreeLookup(tree);
+            if (hierarchy != null) lookup = new HierarchyMappingLookup(lookup, hierarchy);
+            return new MappingTreeRemapper(lookup);
+        }
 
-            if (completeNamespaces && !from.equals(this.tree.getSrcNamespace())) {
+        private MappingLookup createTreeLookup(MappingTreeView tree) {
+            boolean complete = completeNamespaces && !from.equals(tree.getSrcNamespace());
+            String inputNs = this.completionNamespace != null ? this.completionNamespace : tree.getSrcNamespace();
+
+            if (complete && !lazyCompletion) {
                 MemoryMappingTree mmt = new MemoryMappingTree();
 
                 try {
-                    String inputNs = this.completionNamespace != null ? this.completionNamespace : this.tree.getSrcNamespace();
-                    this.tree.accept(new MappingNsCompleter(mmt, Map.of(inputNs, from)));
+                    tree.accept(new MappingNsCompleter(mmt, Map.of(from, inputNs)));
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
 
                 tree = mmt;
-            } else {
-                tree = this.tree;
             }
 
-            return new MappingTreeRemapper(tree, from, to);
+            int fromId = getNamespaceId(tree, from);
+            int toId = getNamespaceId(tree, to);
+            MappingLookup lookup = precompute
+                ? PrecomputedMappingLookup.create(tree, fromId, toId)
+                : new TreeMappingLookup(tree, fromId, toId);
+
+            if (complete && lazyCompletion) {
+                int completionId = getNamespaceId(tree, inputNs);
+                lookup = new CompletingMappingLookup(tree, lookup, fromId, toId, completionId, cacheCompletions);
+            }
+
+            return lookup;
+        }
+
+        private MappingLookup createCompactLookup(CompactMappings mappings) {
+            if (completeNamespaces) {
+                throw new UnsupportedOperationException("Namespace completion is not supported for compact mappings");
+            }
+
+            int fromIndex = getNamespaceIndex(mappings, from);
+            int toIndex = getNamespaceIndex(mappings, to);
+            return precompute
+                ? PrecomputedMappingLookup.create(mappings, fromIndex, toIndex)
+                : new CompactMappingLookup(mappings, fromIndex, toIndex);
         }
     }
 }
@@ -0,0 +1,212 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A mapping lookup that has been compiled from a mapping tree into flat open-addressing hash tables
+ * for a single namespace pair.
+ *
+ * <p>Successful lookups take a single probe sequence and don't allocate.
+ * Like in mapping-io's own lookups, members without a descriptor in the mapping tree match any descriptor,
+ * and field lookups without a descriptor match the first field with the same name.
+ * Members without a name in the output namespace are stored as well, so that they hide other members
+ * in these fallbacks like they do in the tree.
+ */
+final class PrecomputedMappingLookup implements MappingLookup {
+    // Descriptors are never empty, so this can't collide with a real member.
+    private static final String ANY_DESCRIPTOR = "";
+
+    private final LookupTable classes;
+    private final LookupTable methods;
+    private final LookupTable fields;
+
+    private PrecomputedMappingLookup(LookupTable classes, LookupTable methods, LookupTable fields) {
+        this.classes = classes;
+        this.methods = methods;
+        this.fields = fields;
+    }
+
+    static PrecomputedMappingLookup create(MappingTreeView tree, int from, int to) {
+        var classMappings = tree.getClasses();
+        int methodCount = 0;
+        int fieldCount = 0;
+
+        for (var c : classMappings) {
+            methodCount += c.getMethods().size();
+            fieldCount += c.getFields().size();
+        }
+
+        var classes = new LookupTable(classMappings.size());
+        var methods = new LookupTable(methodCount);
+        var fields = new LookupTable(fieldCount * 2);
+
+        for (var c : classMappings) {
+            String owner = c.getName(from);
+            if (owner == null) continue;
+
+            String mappedOwner = c.getName(to);
+            if (mappedOwner != null) classes.putIfAbsent(owner, null, null, mappedOwner);
+
+            for (var m : c.getMethods()) {
+                add(methods, owner, m, from, to, false);
+            }
+
+            for (var f : c.getFields()) {
+                add(fields, owner, f, from, to, true);
+            }
+        }
+
+        return new PrecomputedMappingLookup(classes, methods, fields);
+    }
+
+    static PrecomputedMappingLookup create(CompactMappings mappings, int from, int to) {
+        int classCount = mappings.getClassCount();
+        int memberCount = 0;
+
+        for (int i = 0; i < classCount; i++) {
+            memberCount += mappings.getMemberCount(i);
+        }
+
+        var classes = new LookupTable(classCount);
+        var methods = new LookupTable(memberCount);
+        var fields = new LookupTable(memberCount * 2);
+
+        for (int i = 0; i < classCount; i++) {
+            String owner = mappings.getClassName(i, from);
+            if (owner == null) continue;
+
+            String mappedOwner = mappings.getClassName(i, to);
+            if (mappedOwner != null) classes.putIfAbsent(owner, null, null, mappedOwner);
+
+            int start = mappings.getMemberStart(i);
+            int end = start + mappings.getMemberCount(i);
+
+            for (int member = start; member < end; member++) {
+                String name = mappings.getMemberName(member, from);
+                String mappedName = mappings.getMemberName(member, to);
+                if (name == null) continue;
+
+                if (mappings.getMemberKind(member) == CompactMappings.KIND_METHOD) {
+                    methods.putIfAbsent(owner, name, mappings.getMemberDesc(member, from), mappedName);
+                } else {
+                    fields.putIfAbsent(owner, name, mappings.getMemberDesc(member, from), mappedName);
+                    fields.putIfAbsent(owner, name, ANY_DESCRIPTOR, mappedName);
+                }
+            }
+        }
+
+        return new PrecomputedMappingLookup(classes, methods, fields);
+    }
+
+    private static void add(LookupTable table, String owner, MappingTreeView.MemberMappingView member, int from, int to, boolean byName) {
+        String name = member.getName(from);
+        String mappedName = member.getName(to);
+        if (name == null) return;
+        table.putIfAbsent(owner, name, member.getDesc(from), mappedName);
+        if (byName) table.putIfAbsent(owner, name, ANY_DESCRIPTOR, mappedName);
+    }
+
+    @Override
+    public @Nullable String mapClassName(String name) {
+        return classes.get(name, null, null);
+    }
+
+    @Override
+    public @Nullable String mapMethodName(String owner, String name, String descriptor) {
+        return getMember(methods, owner, name, descriptor);
+    }
+
+    @Override
+    public @Nullable String mapFieldName(String owner, String name, @Nullable String descriptor) {
+        return getMember(fields, owner, name, descriptor != null ? descriptor : ANY_DESCRIPTOR);
+    }
+
+    private static @Nullable String getMember(LookupTable table, String owner, String name, String descriptor) {
+        int slot = table.find(owner, name, descriptor);
+        // Fall back to members that don't have a descriptor in the mappings.
+        if (slot < 0) slot = table.find(owner, name, null);
+        return slot >= 0 ? table.values[slot] : null;
+    }
+
+    /**
+     * An open-addressing hash table with linear probing, keyed by up to three strings.
+     * The values are nullable, and empty slots are the ones without a first key.
+     */
+    private static final class LookupTable {
+        private final int mask;
+        private final int[] hashes;
+        private final String[] firstKeys;
+        private final @Nullable String[] secondKeys;
+        private final @Nullable String[] thirdKeys;
+        private final @Nullable String[] values;
+
+        LookupTable(int expectedSize) {
+            // Keep the load factor at or below 0.5 to keep probe sequences short.
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+            mask = capacity - 1;
+            hashes = new int[capacity];
+            firstKeys = new String[capacity];
+            secondKeys = new String[capacity];
+            thirdKeys = new String[capacity];
+            values = new String[capacity];
+        }
+
+        private static int hash(String first, @Nullable String second, @Nullable String third) {
+            int h = first.hashCode();
+            h = 31 * h + Objects.hashCode(second);
+            h = 31 * h + Objects.hashCode(third);
+            return h ^ (h >>> 16);
+        }
+
+        void putIfAbsent(String first, @Nullable String second, @Nullable String third, @Nullable String value) {
+            int hash = hash(first, second, third);
+
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                if (firstKeys[i] == null) {
+                    hashes[i] = hash;
+                    firstKeys[i] = first;
+                    secondKeys[i] = second;
+                    thirdKeys[i] = third;
+                    values[i] = value;
+                    return;
+                } else if (matches(i, hash, first, second, third)) {
+                    return;
+                }
+            }
+        }
+
+        @Nullable String get(String first, @Nullable String second, @Nullable String third) {
+            int slot = find(first, second, third);
+            return slot >= 0 ? values[slot] : null;
+        }
+
+        /**
+         * {@return the slot of the key, or -1 if the key isn't present}
+         */
+        int find(String first, @Nullable String second, @Nullable String third) {
+            int hash = hash(first, second, third);
+
+            for (int i = hash & mask; firstKeys[i] != null; i = (i + 1) & mask) {
+                if (matches(i, hash, first, second, third)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        private boolean matches(int i, int hash, String first, @Nullable String second, @Nullable String third) {
+            return hashes[i] == hash && first.equals(firstKeys[i])
+                && Objects.equals(second, secondKeys[i]) && Objects.equals(third, thirdKeys[i]);
+        }
+    }
+}
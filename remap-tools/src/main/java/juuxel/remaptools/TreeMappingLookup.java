@@ -0,0 +1,39 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A mapping lookup that queries a {@link MappingTreeView} directly.
+ */
+record TreeMappingLookup(MappingTreeView tree, int from, int to) implements MappingLookup {
+    @Override
+    public @Nullable String mapClassName(String name) {
+        var mapping = tree.getClass(name, from);
+        return mapping != null ? mapping.getName(to) : null;
+    }
+
+    @Override
+    public @Nullable String mapMethodName(String owner, String name, String descriptor) {
+        var ownerMapping = tree.getClass(owner, from);
+        if (ownerMapping == null) return null;
+
+        var mapping = ownerMapping.getMethod(name, descriptor, from);
+        return mapping != null ? mapping.getName(to) : null;
+    }
+
+    @Override
+    public @Nullable String mapFieldName(String owner, String name, @Nullable String descriptor) {
+        var ownerMapping = tree.getClass(owner, from);
+        if (ownerMapping == null) return null;
+
+        var mapping = ownerMapping.getField(name, descriptor, from);
+        return mapping != null ? mapping.getName(to) : null;
+    }
+}
@@ -16,7 +16,7 @@ import java.io.Reader;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.BiFunction;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +35,11 @@ public record Refmap(
         .setPrettyPrinting()
         .create();
 
+    /**
+     * A suggested parallelism threshold for {@link #remap(Set, boolean, Remapper, int)} ({@value}).
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
     /**
      * Creates a refmap from a JSON object.
      *
@@ -98,19 +103,10 @@ public record Refmap(
      * @param environment the environment to remap
      * @param remapper    the remapper
      * @return the remapped refmap
+     * @see #remap(Set, boolean, Remapper)
      */
     public Refmap remap(String environment, Remapper remapper) {
-        return new Refmap(
-            mappings,
-            transformMap(data, (currentEnvironment, mixinsToEntries) -> {
-                if (environment.equals(currentEnvironment)) {
-                    return transformMap(mixinsToEntries,
-                        (mixin, entries) -> transformMap(entries, (key, entry) -> entry.remap(remapper)));
-                }
-
-                return mixinsToEntries;
-            })
-        );
+        return remap(Set.of(environment), false, remapper);
     }
 
     /**
@@ -118,18 +114,77 @@ public record Refmap(
      *
      * @param remapper the remapper
      * @return the remapped refmap
+     * @see #remap(Set, boolean, Remapper)
      */
     public Refmap remapDefault(Remapper remapper) {
-        return new Refmap(
-            transformMap(mappings,
-                (mixin, entries) -> transformMap(entries, (key, entry) -> entry.remap(remapper))),
-            data
-        );
+        return remap(Set.of(), true, remapper);
     }
 
-    private static <K, V, W> Map<K, W> transformMap(Map<K, V> map, BiFunction<K, V, W> mapper) {
-        return map.entrySet().stream()
-            .map(entry -> Map.entry(entry.getKey(), mapper.apply(entry.getKey(), entry.getValue())))
-            .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    /**
+     * Remaps all names in several environments in {@link #data}, and optionally
+     * in the default environment in {@link #mappings}, with a remapper in a single pass.
+     *
+     * @param environments the environments to remap
+     * @param remapDefault whether the default environment should be remapped
+     * @param remapper     the remapper
+     * @return the remapped refmap
+     */
+    public Refmap remap(Set<String> environments, boolean remapDefault, Remapper remapper) {
+        return remap(environments, remapDefault, remapper, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Remaps all names in several environments in {@link #data}, and optionally
+     * in the default environment in {@link #mappings}, with a remapper in a single pass.
+     *
+     * <p>Environments with at least {@code parallelThreshold} entries are remapped in parallel across mixins
+     * on the {@linkplain java.util.concurrent.ForkJoinPool#commonPool() common pool}, so the remapper must be
+     * thread-safe unless the threshold is {@link Integer#MAX_VALUE}.
+     *
+     * @param environments      the environments to remap
+     * @param remapDefault      whether the default environment should be remapped
+     * @param remapper          the remapper
+     * @param parallelThreshold the minimum number of entries in an environment to remap it in parallel,
+     *                          or {@link Integer#MAX_VALUE} to always remap sequentially
+     * @return the remapped refmap
+     * @see #DEFAULT_PARALLEL_THRESHOLD
+     */
+    public Refmap remap(Set<String> environments, boolean remapDefault, Remapper remapper, int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Parallel threshold must not be negative, got " + parallelThreshold);
+        }
+
+        var newMappings = remapDefault && mappings != null ? remapMixins(mappings, remapper, parallelThreshold) : mappings;
+        var newData = data;
+
+        if (data != null && !Collections.disjoint(data.keySet(), environments)) {
+            Map<String, Map<String, Map<String, RefmapEntry>>> remappedData = new HashMap<>(data);
+
+            for (String environment : environments) {
+                remappedData.computeIfPresent(environment, (key, mixins) -> remapMixins(mixins, remapper, parallelThreshold));
+            }
+
+            newData = Collections.unmodifiableMap(remappedData);
+        }
+
+        return new Refmap(newMappings, newData);
+    }
+
+    private static Map<String, Map<String, RefmapEntry>> remapMixins(Map<String, Map<String, RefmapEntry>> mixins, Remapper remapper, int parallelThreshold) {
+        long entryCount = 0;
+        for (var entries : mixins.values()) entryCount += entries.size();
+
+        var stream = entryCount >= parallelThreshold ? mixins.entrySet().parallelStream() : mixins.entrySet().stream();
+        return stream.collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, mixin -> remapEntries(mixin.getValue(), remapper)));
+    }
+
+    private static Map<String, RefmapEntry> remapEntries(Map<String, RefmapEntry> entries, Remapper remapper) {
+        Map<String, RefmapEntry> result = new HashMap<>(entries.size() * 4 / 3 + 1);
+
+        for (var entry : entries.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().remap(remapper));
+        }
+
+        return Collections.unmodifiableMap(result);
     }
 }
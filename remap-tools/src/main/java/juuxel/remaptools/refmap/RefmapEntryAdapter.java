@@ -12,22 +12,28 @@ import com.google.gson.stream.JsonWriter;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.util.regex.Pattern;
 
 final class RefmapEntryAdapter extends TypeAdapter<RefmapEntry> {
-    private static final Pattern FIELD_PATTERN = Pattern.compile("(?:L([^;]+);)?(.+):(.+)");
-    private static final Pattern METHOD_PATTERN = Pattern.compile("(?:L([^;]+);)?(.+)(\\(.*\\).+)");
-
     @Override
     public void write(JsonWriter out, RefmapEntry value) throws IOException {
-        String str = value.visit(new RefmapEntry.Visitor<>() {
+        out.value(format(value));
+    }
+
+    @Override
+    public RefmapEntry read(JsonReader in) throws IOException {
+        return parse(in.nextString());
+    }
+
+    static String format(RefmapEntry value) {
+        return value.visit(new RefmapEntry.Visitor<>() {
             private String writeClassDesc(@Nullable String name) {
                 return name != null ? "L" + name + ";" : "";
             }
 
             @Override
             public String visitClass(RefmapEntry.ClassEntry entry) {
-                return writeClassDesc(entry.name());
+                // Class entries are plain internal names, which is also how they're parsed.
+                return entry.name();
             }
 
             @Override
@@ -40,27 +46,78 @@ final class RefmapEntryAdapter extends TypeAdapter<RefmapEntry> {
                 return writeClassDesc(entry.owner()) + entry.name() + ":" + entry.descriptor();
             }
         });
-        out.value(str);
     }
 
-    @Override
-    public RefmapEntry read(JsonReader in) throws IOException {
-        String input = in.nextString();
+    /**
+     * Parses a refmap entry. This is equivalent to matching the input against the regexes
+     * {@code (?:L([^;]+);)?(.+):(.+)} for fields and {@code (?:L([^;]+);)?(.+)(\(.*\).+)}
+     * for methods, in that order, and treating it as a class if neither matches.
+     */
+    static RefmapEntry parse(String input) {
+        int length = input.length();
+        int ownerEnd = findOwnerEnd(input);
 
-        if (input.contains(":")) {
-            var matcher = FIELD_PATTERN.matcher(input);
-            if (matcher.matches()) {
-                return new RefmapEntry.FieldEntry(matcher.group(1), matcher.group(2), matcher.group(3));
+        if (input.indexOf(':') >= 0) {
+            if (ownerEnd >= 0) {
+                var entry = parseField(input, input.substring(1, ownerEnd), ownerEnd + 1, length);
+                if (entry != null) return entry;
             }
+
+            var entry = parseField(input, null, 0, length);
+            if (entry != null) return entry;
         }
 
-        if (input.contains("(")) {
-            var matcher = METHOD_PATTERN.matcher(input);
-            if (matcher.matches()) {
-                return new RefmapEntry.MethodEntry(matcher.group(1), matcher.group(2), matcher.group(3));
+        if (input.indexOf('(') >= 0) {
+            if (ownerEnd >= 0) {
+                var entry = parseMethod(input, input.substring(1, ownerEnd), ownerEnd + 1, length);
+                if (entry != null) return entry;
             }
+
+            var entry = parseMethod(input, null, 0, length);
+            if (entry != null) return entry;
         }
 
         return new RefmapEntry.ClassEntry(input);
     }
+
+    /**
+     * {@return the index of the semicolon ending the owner class descriptor, or -1 if there's no owner}
+     */
+    private static int findOwnerEnd(String input) {
+        if (input.isEmpty() || input.charAt(0) != 'L') return -1;
+        int semicolon = input.indexOf(';', 1);
+        // The owner name can't be empty.
+        return semicolon > 1 ? semicolon : -1;
+    }
+
+    private static RefmapEntry.@Nullable FieldEntry parseField(String input, @Nullable String owner, int start, int end) {
+        // The name and the descriptor must both be non-empty, and the name is as long as possible.
+        int colon = input.lastIndexOf(':', end - 2);
+        if (colon <= start || hasLineTerminator(input, start, end)) return null;
+        return new RefmapEntry.FieldEntry(owner, input.substring(start, colon), input.substring(colon + 1, end));
+    }
+
+    private static RefmapEntry.@Nullable MethodEntry parseMethod(String input, @Nullable String owner, int start, int end) {
+        // The descriptor needs a closing parenthesis followed by at least one character.
+        int close = input.lastIndexOf(')', end - 2);
+        if (close < 0) return null;
+        int open = input.lastIndexOf('(', close - 1);
+        if (open <= start || hasLineTerminator(input, start, end)) return null;
+        return new RefmapEntry.MethodEntry(owner, input.substring(start, open), input.substring(open, end));
+    }
+
+    /**
+     * Checks for line terminators, which the {@code .} in the regexes doesn't match.
+     */
+    private static boolean hasLineTerminator(String input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
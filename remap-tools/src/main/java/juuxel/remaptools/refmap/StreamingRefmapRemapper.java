@@ -0,0 +1,169 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.refmap;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Remaps refmaps in a single streaming pass from a reader to a writer.
+ *
+ * <p>Unlike {@link Refmap#read} and {@link Refmap#remap}, this doesn't build the refmap in memory:
+ * each entry is remapped as soon as it's read. Environments that aren't remapped and any unknown
+ * properties are copied as is. The output is formatted like {@link Refmap#write}.
+ */
+public final class StreamingRefmapRemapper {
+    private static final String MAPPINGS = "mappings";
+    private static final String DATA = "data";
+
+    private final Remapper remapper;
+    private final Set<String> environments;
+    private final boolean remapDefault;
+
+    /**
+     * Creates a streaming refmap remapper.
+     *
+     * @param remapper     the remapper
+     * @param environments the environments in {@link Refmap#data() data} to remap
+     * @param remapDefault whether the default {@link Refmap#mappings() mappings} should be remapped
+     */
+    public StreamingRefmapRemapper(Remapper remapper, Set<String> environments, boolean remapDefault) {
+        this.remapper = Objects.requireNonNull(remapper, "remapper");
+        this.environments = Set.copyOf(environments);
+        this.remapDefault = remapDefault;
+    }
+
+    /**
+     * Reads a refmap, remaps it and writes the result.
+     *
+     * @param reader the reader to read the refmap from
+     * @param writer the writer to write the remapped refmap to
+     */
+    public void remap(Reader reader, Writer writer) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        JsonWriter out = new JsonWriter(writer);
+        out.setIndent("  ");
+
+        in.beginObject();
+        out.beginObject();
+
+        while (in.hasNext()) {
+            String name = in.nextName();
+            out.name(name);
+
+            if (MAPPINGS.equals(name) && remapDefault && in.peek() == JsonToken.BEGIN_OBJECT) {
+                remapMixins(in, out);
+            } else if (DATA.equals(name) && !environments.isEmpty() && in.peek() == JsonToken.BEGIN_OBJECT) {
+                remapData(in, out);
+            } else {
+                copy(in, out);
+            }
+        }
+
+        in.endObject();
+        out.endObject();
+        out.flush();
+    }
+
+    private void remapData(JsonReader in, JsonWriter out) throws IOException {
+        in.beginObject();
+        out.beginObject();
+
+        while (in.hasNext()) {
+            String environment = in.nextName();
+            out.name(environment);
+
+            if (environments.contains(environment) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                remapMixins(in, out);
+            } else {
+                copy(in, out);
+            }
+        }
+
+        in.endObject();
+        out.endObject();
+    }
+
+    private void remapMixins(JsonReader in, JsonWriter out) throws IOException {
+        in.beginObject();
+        out.beginObject();
+
+        while (in.hasNext()) {
+            out.name(in.nextName());
+
+            if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                remapEntries(in, out);
+            } else {
+                copy(in, out);
+            }
+        }
+
+        in.endObject();
+        out.endObject();
+    }
+
+    private void remapEntries(JsonReader in, JsonWriter out) throws IOException {
+        in.beginObject();
+        out.beginObject();
+
+        while (in.hasNext()) {
+            out.name(in.nextName());
+
+            if (in.peek() == JsonToken.STRING) {
+                RefmapEntry entry = RefmapEntryAdapter.parse(in.nextString());
+                out.value(RefmapEntryAdapter.format(entry.remap(remapper)));
+            } else {
+                copy(in, out);
+            }
+        }
+
+        in.endObject();
+        out.endObject();
+    }
+
+    private static void copy(JsonReader in, JsonWriter out) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT -> {
+                in.beginObject();
+                out.beginObject();
+
+                while (in.hasNext()) {
+                    out.name(in.nextName());
+                    copy(in, out);
+                }
+
+                in.endObject();
+                out.endObject();
+            }
+            case BEGIN_ARRAY -> {
+                in.beginArray();
+                out.beginArray();
+                while (in.hasNext()) copy(in, out);
+                in.endArray();
+                out.endArray();
+            }
+            case STRING -> out.value(in.nextString());
+            // Keeps the original number formatting.
+            case NUMBER -> out.jsonValue(in.nextString());
+            case BOOLEAN -> out.value(in.nextBoolean());
+            case NULL -> {
+                in.nextNull();
+                out.nullValue();
+            }
+            default -> throw new IllegalStateException("Unexpected JSON token: " + in.peek());
+        }
+    }
+}
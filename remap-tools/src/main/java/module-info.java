@@ -13,6 +13,6 @@ module io.github.juuxel.remaptools {
 
     requires transitive org.objectweb.asm.commons;
     requires com.google.gson;
-    requires static net.fabricmc.mappingio; // only for some types
+    requires transitive net.fabricmc.mappingio;
     requires static org.jetbrains.annotations;
 }
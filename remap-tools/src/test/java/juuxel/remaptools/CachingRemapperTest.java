@@ -0,0 +1,146 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.commons.Remapper;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link CachingRemapper} gives the same results as its delegate
+ * and only calls the delegate on cache misses.
+ */
+class CachingRemapperTest {
+    // "Aa" and "BB" have the same hash code, so they always share a cache slot.
+    private static final String COLLIDING_1 = "Aa";
+    private static final String COLLIDING_2 = "BB";
+
+    @Test
+    void hitsDoNotCallDelegate() {
+        CountingRemapper delegate = new CountingRemapper();
+        CachingRemapper remapper = new CachingRemapper(delegate);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(delegate.expectedClass("pkg/A"), remapper.map("pkg/A"));
+            assertEquals(delegate.expectedMethod("pkg/A", "run", "()V"), remapper.mapMethodName("pkg/A", "run", "()V"));
+            assertEquals(delegate.expectedField("pkg/A", "value", "I"), remapper.mapFieldName("pkg/A", "value", "I"));
+        }
+
+        assertEquals(1, delegate.classCalls, "Class lookups");
+        assertEquals(1, delegate.methodCalls, "Method lookups");
+        assertEquals(1, delegate.fieldCalls, "Field lookups");
+
+        // The delegate maps the class names in descriptors with its own map method.
+        for (int i = 0; i < 2; i++) {
+            assertEquals("Lmapped/pkg/A;", remapper.mapDesc("Lpkg/A;"));
+            assertEquals("(Lmapped/pkg/A;)V", remapper.mapMethodDesc("(Lpkg/A;)V"));
+        }
+
+        assertEquals(3, delegate.classCalls, "Class lookups after descriptors");
+    }
+
+    @Test
+    void missesCallDelegate() {
+        CountingRemapper delegate = new CountingRemapper();
+        CachingRemapper remapper = new CachingRemapper(delegate);
+
+        assertEquals(delegate.expectedClass("pkg/A"), remapper.map("pkg/A"));
+        assertEquals(delegate.expectedClass("pkg/B"), remapper.map("pkg/B"));
+        // Members that differ in any part of the key are different entries.
+        assertEquals(delegate.expectedMethod("pkg/A", "run", "()V"), remapper.mapMethodName("pkg/A", "run", "()V"));
+        assertEquals(delegate.expectedMethod("pkg/A", "run", "(I)V"), remapper.mapMethodName("pkg/A", "run", "(I)V"));
+        assertEquals(delegate.expectedMethod("pkg/A", "call", "()V"), remapper.mapMethodName("pkg/A", "call", "()V"));
+        assertEquals(delegate.expectedMethod("pkg/B", "run", "()V"), remapper.mapMethodName("pkg/B", "run", "()V"));
+        // Fields and methods are cached separately.
+        assertEquals(delegate.expectedField("pkg/A", "run", "()V"), remapper.mapFieldName("pkg/A", "run", "()V"));
+
+        assertEquals(2, delegate.classCalls, "Class lookups");
+        assertEquals(4, delegate.methodCalls, "Method lookups");
+        assertEquals(1, delegate.fieldCalls, "Field lookups");
+    }
+
+    @Test
+    void slotCollisionsReplaceEntries() {
+        CountingRemapper delegate = new CountingRemapper();
+        CachingRemapper remapper = new CachingRemapper(delegate);
+
+        assertEquals(delegate.expectedClass(COLLIDING_1), remapper.map(COLLIDING_1));
+        assertEquals(delegate.expectedClass(COLLIDING_2), remapper.map(COLLIDING_2));
+        assertEquals(delegate.expectedClass(COLLIDING_1), remapper.map(COLLIDING_1));
+        assertEquals(3, delegate.classCalls, "Class lookups");
+
+        assertEquals(delegate.expectedMethod(COLLIDING_1, "run", "()V"), remapper.mapMethodName(COLLIDING_1, "run", "()V"));
+        assertEquals(delegate.expectedMethod(COLLIDING_2, "run", "()V"), remapper.mapMethodName(COLLIDING_2, "run", "()V"));
+        assertEquals(delegate.expectedMethod(COLLIDING_1, "run", "()V"), remapper.mapMethodName(COLLIDING_1, "run", "()V"));
+        assertEquals(3, delegate.methodCalls, "Method lookups");
+
+        assertEquals(delegate.expectedField("pkg/A", COLLIDING_1, "I"), remapper.mapFieldName("pkg/A", COLLIDING_1, "I"));
+        assertEquals(delegate.expectedField("pkg/A", COLLIDING_2, "I"), remapper.mapFieldName("pkg/A", COLLIDING_2, "I"));
+        assertEquals(delegate.expectedField("pkg/A", COLLIDING_1, "I"), remapper.mapFieldName("pkg/A", COLLIDING_1, "I"));
+        assertEquals(3, delegate.fieldCalls, "Field lookups");
+    }
+
+    @Test
+    void resultsMatchDelegateWithSmallCapacity() {
+        CountingRemapper delegate = new CountingRemapper();
+        CachingRemapper remapper = new CachingRemapper(delegate, 8);
+        Random random = new Random(0);
+
+        for (int i = 0; i < 10_000; i++) {
+            String owner = "pkg/C" + random.nextInt(32);
+            String name = "m" + random.nextInt(8);
+            String descriptor = "(L" + owner + ";)V";
+
+            assertEquals(delegate.expectedClass(owner), remapper.map(owner));
+            assertEquals(delegate.expectedMethod(owner, name, descriptor), remapper.mapMethodName(owner, name, descriptor));
+            assertEquals(delegate.expectedField(owner, name, "I"), remapper.mapFieldName(owner, name, "I"));
+            assertEquals("(Lmapped/" + owner + ";)V", remapper.mapMethodDesc(descriptor));
+        }
+    }
+
+    /**
+     * A deterministic remapper that counts its lookups.
+     */
+    private static final class CountingRemapper extends Remapper {
+        int classCalls;
+        int methodCalls;
+        int fieldCalls;
+
+        String expectedClass(String internalName) {
+            return "mapped/" + internalName;
+        }
+
+        String expectedMethod(String owner, String name, String descriptor) {
+            return owner + "." + name + descriptor;
+        }
+
+        String expectedField(String owner, String name, String descriptor) {
+            return owner + "." + name + ":" + descriptor;
+        }
+
+        @Override
+        public String map(String internalName) {
+            classCalls++;
+            return expectedClass(internalName);
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            methodCalls++;
+            return expectedMethod(owner, name, descriptor);
+        }
+
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            fieldCalls++;
+            return expectedField(owner, name, descriptor);
+        }
+    }
+}
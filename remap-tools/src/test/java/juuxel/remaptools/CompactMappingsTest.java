@@ -0,0 +1,83 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.format.Tiny2Writer;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that visiting {@link CompactMappings} reproduces the tree they were created from.
+ */
+class CompactMappingsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void acceptReproducesTree() throws IOException {
+        MemoryMappingTree tree = new MemoryMappingTree();
+        tree.visitNamespaces("official", List.of("intermediary", "named"));
+        tree.visitMetadata("sorted", null);
+        tree.visitMetadata("author", "Someone");
+
+        tree.visitClass("a");
+        tree.visitDstName(MappedElementKind.CLASS, 0, "class_1");
+        tree.visitDstName(MappedElementKind.CLASS, 1, "pkg/Named");
+        tree.visitComment(MappedElementKind.CLASS, "A class.");
+        tree.visitField("a", "I");
+        tree.visitDstName(MappedElementKind.FIELD, 0, "field_1");
+        tree.visitDstName(MappedElementKind.FIELD, 1, "count");
+        tree.visitComment(MappedElementKind.FIELD, "A field.");
+        tree.visitMethod("a", "(La;)V");
+        tree.visitDstName(MappedElementKind.METHOD, 0, "method_1");
+        tree.visitDstName(MappedElementKind.METHOD, 1, "use");
+        tree.visitComment(MappedElementKind.METHOD, "A method\nwith two lines.");
+        tree.visitMethodArg(0, 1, null);
+        tree.visitDstName(MappedElementKind.METHOD_ARG, 1, "other");
+        tree.visitComment(MappedElementKind.METHOD_ARG, "An argument.");
+        tree.visitMethodVar(0, 2, 3, null);
+        tree.visitDstName(MappedElementKind.METHOD_VAR, 1, "local");
+        tree.visitComment(MappedElementKind.METHOD_VAR, "A variable.");
+
+        // Elements without comments.
+        tree.visitClass("b");
+        tree.visitDstName(MappedElementKind.CLASS, 0, "class_2");
+        tree.visitMethod("b", "()V");
+        tree.visitDstName(MappedElementKind.METHOD, 1, "run");
+        tree.visitEnd();
+
+        CompactMappings compact = CompactMappings.of(tree);
+        Path file = tempDir.resolve("mappings.bin");
+        compact.write(file);
+
+        String expected = toTiny(tree);
+        assertEquals(expected, toTiny(read(compact)), "Created mappings");
+        assertEquals(expected, toTiny(read(CompactMappings.open(file))), "Opened mappings");
+    }
+
+    private static MemoryMappingTree read(CompactMappings mappings) throws IOException {
+        MemoryMappingTree tree = new MemoryMappingTree();
+        mappings.accept(tree);
+        return tree;
+    }
+
+    private static String toTiny(MappingTreeView tree) throws IOException {
+        StringWriter writer = new StringWriter();
+        tree.accept(new Tiny2Writer(writer, false));
+        return writer.toString();
+    }
+}
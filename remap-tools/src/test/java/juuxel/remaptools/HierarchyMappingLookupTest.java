@@ -0,0 +1,189 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link MappingTreeRemapper} resolves inherited members through a {@link ClassHierarchy}
+ * like the JVM does.
+ */
+class HierarchyMappingLookupTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void methodsAreInheritedFromSuperclassesBeforeInterfaces() {
+        MemoryMappingTree tree = createTree();
+        addMethod(tree, "A", "run", "()V", "runA");
+        addMethod(tree, "I", "run", "()V", "runI");
+        addMethod(tree, "J", "call", "()V", "callJ");
+
+        ClassHierarchy hierarchy = ClassHierarchy.builder()
+            .add("A", "java/lang/Object", List.of())
+            .add("B", "A", List.of("I"))
+            .add("C", "B", List.of())
+            .add("I", "java/lang/Object", List.of("J"))
+            .add("J", "java/lang/Object", List.of())
+            .build();
+        Remapper remapper = createRemapper(tree, hierarchy);
+
+        assertEquals("runA", remapper.mapMethodName("C", "run", "()V"));
+        assertEquals("callJ", remapper.mapMethodName("C", "call", "()V"));
+        assertEquals("callJ", remapper.mapMethodName("I", "call", "()V"));
+        assertEquals("run", remapper.mapMethodName("C", "run", "(I)V"), "Other descriptor");
+        assertEquals("<init>", remapper.mapMethodName("C", "<init>", "()V"), "Constructors");
+    }
+
+    @Test
+    void fieldsAreInheritedFromInterfacesBeforeSuperclasses() {
+        MemoryMappingTree tree = createTree();
+        addField(tree, "A", "value", "I", "valueA");
+        addField(tree, "I", "value", "I", "valueI");
+        addField(tree, "J", "constant", "I", "constantJ");
+        addField(tree, "A", "count", "J", "countA");
+
+        ClassHierarchy hierarchy = ClassHierarchy.builder()
+            .add("A", "java/lang/Object", List.of())
+            .add("B", "A", List.of("I"))
+            .add("C", "B", List.of())
+            .add("I", "java/lang/Object", List.of("J"))
+            .add("J", "java/lang/Object", List.of())
+            .build();
+        Remapper remapper = createRemapper(tree, hierarchy);
+
+        assertEquals("valueI", remapper.mapFieldName("C", "value", "I"));
+        assertEquals("constantJ", remapper.mapFieldName("C", "constant", "I"));
+        assertEquals("countA", remapper.mapFieldName("C", "count", "J"));
+        assertEquals("countA", remapper.mapFieldName("C", "count", null), "Field without descriptor");
+    }
+
+    @Test
+    void nonInheritedMembersAreSkipped() {
+        MemoryMappingTree tree = createTree();
+        addMethod(tree, "A", "run", "()V", "runA");
+        addMethod(tree, "B", "run", "()V", "privateRunB");
+        addField(tree, "A", "value", "I", "valueA");
+        addField(tree, "B", "value", "I", "privateValueB");
+        addMethod(tree, "I", "create", "()V", "staticCreateI");
+        addMethod(tree, "J", "create", "()V", "createJ");
+
+        ClassHierarchy hierarchy = ClassHierarchy.builder()
+            .add("A", "java/lang/Object", List.of())
+            .add("B", "A", List.of())
+            .addNonInheritedMethod("B", "run", "()V")
+            .addNonInheritedField("B", "value", "I")
+            .add("C", "B", List.of("I"))
+            .add("I", "java/lang/Object", List.of("J"))
+            .addNonInheritedMethod("I", "create", "()V")
+            .add("J", "java/lang/Object", List.of())
+            .build();
+        Remapper remapper = createRemapper(tree, hierarchy);
+
+        assertEquals("runA", remapper.mapMethodName("C", "run", "()V"));
+        assertEquals("valueA", remapper.mapFieldName("C", "value", "I"));
+        assertEquals("valueA", remapper.mapFieldName("C", "value", null), "Field without descriptor");
+        assertEquals("createJ", remapper.mapMethodName("C", "create", "()V"));
+        // Members declared in the referenced owner itself are always found.
+        assertEquals("privateRunB", remapper.mapMethodName("B", "run", "()V"));
+        assertEquals("privateValueB", remapper.mapFieldName("B", "value", "I"));
+    }
+
+    @Test
+    void cyclicHierarchiesAreIgnored() {
+        MemoryMappingTree tree = createTree();
+        addMethod(tree, "I", "run", "()V", "runI");
+
+        ClassHierarchy hierarchy = ClassHierarchy.builder()
+            .add("A", "B", List.of())
+            .add("B", "A", List.of("I"))
+            .add("I", "java/lang/Object", List.of("J"))
+            .add("J", "java/lang/Object", List.of("I"))
+            .build();
+        Remapper remapper = createRemapper(tree, hierarchy);
+
+        assertEquals("runI", remapper.mapMethodName("A", "run", "()V"));
+        assertEquals("missing", remapper.mapMethodName("A", "missing", "()V"));
+        assertEquals("missing", remapper.mapFieldName("A", "missing", "I"));
+        assertEquals("missing", remapper.mapMethodName("J", "missing", "()V"));
+    }
+
+    @Test
+    void scannedHierarchySkipsPrivateMembers() throws IOException {
+        Path jar = tempDir.resolve("classes.jar");
+
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            writeClass(out, Opcodes.ACC_PUBLIC, "A", "java/lang/Object", Opcodes.ACC_PUBLIC);
+            writeClass(out, Opcodes.ACC_PUBLIC, "B", "A", Opcodes.ACC_PRIVATE);
+            writeClass(out, Opcodes.ACC_PUBLIC, "C", "B", Opcodes.ACC_PUBLIC);
+        }
+
+        MemoryMappingTree tree = createTree();
+        addMethod(tree, "A", "run", "()V", "runA");
+        addMethod(tree, "B", "run", "()V", "privateRunB");
+        addField(tree, "A", "value", "I", "valueA");
+        addField(tree, "B", "value", "I", "privateValueB");
+
+        ClassHierarchy hierarchy = ClassHierarchy.builder().scan(jar).build();
+        Remapper remapper = createRemapper(tree, hierarchy);
+
+        assertEquals("runA", remapper.mapMethodName("C", "run", "()V"));
+        assertEquals("valueA", remapper.mapFieldName("C", "value", "I"));
+    }
+
+    private static MemoryMappingTree createTree() {
+        MemoryMappingTree tree = new MemoryMappingTree();
+        tree.visitNamespaces("official", List.of("named"));
+        return tree;
+    }
+
+    private static void addMethod(MemoryMappingTree tree, String owner, String name, String descriptor, String mappedName) {
+        tree.visitClass(owner);
+        tree.visitMethod(name, descriptor);
+        tree.visitDstName(MappedElementKind.METHOD, 0, mappedName);
+    }
+
+    private static void addField(MemoryMappingTree tree, String owner, String name, String descriptor, String mappedName) {
+        tree.visitClass(owner);
+        tree.visitField(name, descriptor);
+        tree.visitDstName(MappedElementKind.FIELD, 0, mappedName);
+    }
+
+    private static Remapper createRemapper(MemoryMappingTree tree, ClassHierarchy hierarchy) {
+        return MappingTreeRemapper.builder(tree).namespaces("official", "named").hierarchy(hierarchy).build();
+    }
+
+    /**
+     * Writes a class with a method {@code run()V} and a field {@code value} with the member access.
+     */
+    private static void writeClass(ZipOutputStream out, int access, String name, String superName, int memberAccess) throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, access, name, null, superName, null);
+        writer.visitField(memberAccess, "value", "I", null, null).visitEnd();
+        writer.visitMethod(memberAccess, "run", "()V", null, null).visitEnd();
+        writer.visitEnd();
+
+        out.putNextEntry(new ZipEntry(name + ".class"));
+        out.write(writer.toByteArray());
+        out.closeEntry();
+    }
+}
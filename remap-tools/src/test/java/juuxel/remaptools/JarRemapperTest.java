@@ -0,0 +1,280 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the output of {@link JarRemapper} and how it bounds and cancels its class tasks.
+ */
+class JarRemapperTest {
+    private static final long ENTRY_TIME = 1_000_000_000_000L;
+    private static final Remapper REMAPPER = new Remapper() {
+        @Override
+        public String map(String internalName) {
+            return internalName.startsWith("pkg/") ? "mapped/" + internalName.substring(4) : internalName;
+        }
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void entriesKeepOrderAndMetadata() throws IOException {
+        List<TestEntry> entries = List.of(
+            new TestEntry("META-INF/", null, ZipEntry.DEFLATED),
+            new TestEntry("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED),
+            new TestEntry("pkg/B.class", createClass("pkg/B", "pkg/A"), ZipEntry.DEFLATED),
+            new TestEntry("assets/data.txt", "data".getBytes(StandardCharsets.UTF_8), ZipEntry.STORED),
+            new TestEntry("pkg/A.class", createClass("pkg/A", "java/lang/Object"), ZipEntry.STORED),
+            new TestEntry("META-INF/versions/9/pkg/A.class", createClass("pkg/A", "java/lang/Object"), ZipEntry.DEFLATED),
+            new TestEntry("other/C.class", createClass("other/C", "pkg/A"), ZipEntry.DEFLATED)
+        );
+        Path input = writeJar(tempDir.resolve("input.jar"), entries);
+        Path output = tempDir.resolve("output.jar");
+
+        // A window of one class makes the writer wait for each class in turn.
+        for (int maxPendingClasses : new int[] { 1, 64 }) {
+            JarRemapper.builder(REMAPPER).maxPendingClasses(maxPendingClasses).build().remap(input, output);
+
+            try (ZipFile zip = new ZipFile(output.toFile())) {
+                List<ZipEntry> outputEntries = zip.stream().map(ZipEntry.class::cast).toList();
+                List<String> expectedNames = List.of(
+                    "META-INF/",
+                    "META-INF/MANIFEST.MF",
+                    "mapped/B.class",
+                    "assets/data.txt",
+                    "mapped/A.class",
+                    "META-INF/versions/9/mapped/A.class",
+                    "other/C.class"
+                );
+                assertEquals(expectedNames, outputEntries.stream().map(ZipEntry::getName).toList());
+
+                for (int i = 0; i < entries.size(); i++) {
+                    TestEntry expected = entries.get(i);
+                    ZipEntry actual = outputEntries.get(i);
+                    assertEquals(ENTRY_TIME, actual.getTime(), () -> "Time of " + actual.getName());
+                    assertEquals(expected.method(), actual.getMethod(), () -> "Method of " + actual.getName());
+                    if (expected.bytes() == null) continue;
+
+                    byte[] bytes = read(zip, actual);
+                    assertEquals((long) bytes.length, actual.getSize(), () -> "Size of " + actual.getName());
+                    assertEquals(crc(bytes), actual.getCrc(), () -> "CRC of " + actual.getName());
+
+                    if (actual.getName().endsWith(".class")) {
+                        ClassReader reader = new ClassReader(bytes);
+                        assertEquals(REMAPPER.map(new ClassReader(expected.bytes()).getClassName()), reader.getClassName());
+                        assertEquals(REMAPPER.map(new ClassReader(expected.bytes()).getSuperName()), reader.getSuperName());
+                    } else {
+                        assertArrayEquals(expected.bytes(), bytes, "Contents of " + actual.getName());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void pendingClassesAreBounded() throws Exception {
+        int classCount = 20;
+        int maxPendingClasses = 3;
+        List<TestEntry> entries = new ArrayList<>();
+
+        for (int i = 0; i < classCount; i++) {
+            entries.add(new TestEntry("pkg/C" + i + ".class", createClass("pkg/C" + i, "java/lang/Object"), ZipEntry.DEFLATED));
+        }
+
+        Path input = writeJar(tempDir.resolve("input.jar"), entries);
+        Path output = tempDir.resolve("output.jar");
+
+        // The tasks are only run when the test runs them, so the number of submitted tasks shows the window.
+        ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        AtomicInteger submitted = new AtomicInteger();
+        JarRemapper remapper = JarRemapper.builder(REMAPPER)
+            .executor(task -> {
+                submitted.incrementAndGet();
+                tasks.add(task);
+            })
+            .maxPendingClasses(maxPendingClasses)
+            .build();
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                remapper.remap(input, output);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        // The remapper waits for its tasks forever if the window isn't bounded.
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            waitUntil(() -> submitted.get() >= maxPendingClasses);
+            Thread.sleep(100);
+            assertEquals(maxPendingClasses, submitted.get(), "Submitted tasks before any were run");
+
+            int run = 0;
+
+            while (thread.isAlive()) {
+                Runnable task = tasks.poll();
+
+                if (task == null) {
+                    Thread.sleep(1);
+                    continue;
+                }
+
+                task.run();
+                run++;
+                // Only written classes make room for more, and a class can't be written before its task has run.
+                assertTrue(submitted.get() <= run + maxPendingClasses, "Submitted tasks exceed the window");
+            }
+        } finally {
+            thread.join(10_000);
+        }
+
+        assertNull(failure.get());
+        assertEquals(classCount, submitted.get());
+
+        try (ZipFile zip = new ZipFile(output.toFile())) {
+            assertEquals(classCount, zip.size());
+        }
+    }
+
+    @Test
+    void failureWaitsForStartedClasses() throws Exception {
+        List<TestEntry> entries = new ArrayList<>();
+        entries.add(new TestEntry("pkg/Broken.class", createClass("pkg/Broken", "java/lang/Object"), ZipEntry.DEFLATED));
+
+        for (int i = 0; i < 20; i++) {
+            entries.add(new TestEntry("pkg/C" + i + ".class", createClass("pkg/C" + i, "java/lang/Object"), ZipEntry.DEFLATED));
+        }
+
+        Path input = writeJar(tempDir.resolve("input.jar"), entries);
+        Path output = tempDir.resolve("output.jar");
+        AtomicBoolean returned = new AtomicBoolean();
+        AtomicInteger remappedAfterReturn = new AtomicInteger();
+
+        Remapper remapper = new Remapper() {
+            @Override
+            public String map(String internalName) {
+                // The broken class fails once the window is full and the other classes are being remapped.
+                try {
+                    Thread.sleep(internalName.equals("pkg/Broken") ? 50 : 20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                if (internalName.equals("pkg/Broken")) throw new IllegalStateException("Broken class");
+
+                // A task that's still remapping after remap returned could also read from the closed jar.
+                if (returned.get()) remappedAfterReturn.incrementAndGet();
+                return REMAPPER.map(internalName);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            JarRemapper jarRemapper = JarRemapper.builder(remapper).executor(executor).maxPendingClasses(8).build();
+            CompletionException e = assertThrows(CompletionException.class, () -> jarRemapper.remap(input, output));
+            returned.set(true);
+            assertEquals("Broken class", e.getCause().getMessage());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(0, remappedAfterReturn.get(), "Classes remapped after the failure was thrown");
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (!condition.getAsBoolean()) {
+            assertFalse(System.nanoTime() > deadline, "Timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static Path writeJar(Path path, List<TestEntry> entries) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (TestEntry entry : entries) {
+                ZipEntry zipEntry = new ZipEntry(entry.name());
+                zipEntry.setTime(ENTRY_TIME);
+
+                if (entry.method() == ZipEntry.STORED) {
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(entry.bytes().length);
+                    zipEntry.setCompressedSize(entry.bytes().length);
+                    zipEntry.setCrc(crc(entry.bytes()));
+                }
+
+                out.putNextEntry(zipEntry);
+                if (entry.bytes() != null) out.write(entry.bytes());
+                out.closeEntry();
+            }
+        }
+
+        return path;
+    }
+
+    private static byte[] createClass(String name, String superName) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private record TestEntry(String name, byte[] bytes, int method) {
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools;
+
+import net.fabricmc.mappingio.MappedElementKind;
+import net.fabricmc.mappingio.adapter.MappingNsCompleter;
+import net.fabricmc.mappingio.tree.MappingTreeView;
+import net.fabricmc.mappingio.tree.MemoryMappingTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the precomputed and compact lookups of {@link MappingTreeRemapper}
+ * give the same results as looking up names in the mapping tree, and that lazy
+ * namespace completion gives the same results as eager completion.
+ */
+class MappingTreeRemapperTest {
+    private static final List<String> NAMESPACES = List.of("official", "intermediary", "named");
+    private static final String[] FIELD_DESCRIPTORS = { "I", "J", "Lb;", "[La;", "Ljava/lang/String;" };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void lookupsMatchTreeForEdgeCases() throws IOException {
+        MemoryMappingTree tree = new MemoryMappingTree();
+        tree.visitNamespaces("official", List.of("intermediary", "named"));
+
+        tree.visitClass("a");
+        tree.visitDstName(MappedElementKind.CLASS, 0, "class_1");
+        tree.visitDstName(MappedElementKind.CLASS, 1, "pkg/Named");
+        // Overloads with different mappings.
+        tree.visitMethod("a", "()V");
+        tree.visitDstName(MappedElementKind.METHOD, 0, "method_1");
+        tree.visitDstName(MappedElementKind.METHOD, 1, "run");
+        tree.visitMethod("a", "(La;)Lb;");
+        tree.visitDstName(MappedElementKind.METHOD, 0, "method_2");
+        // Fields with the same name and different descriptors.
+        tree.visitField("a", "I");
+        tree.visitDstName(MappedElementKind.FIELD, 0, "field_1");
+        tree.visitDstName(MappedElementKind.FIELD, 1, "count");
+        tree.visitField("a", "Lb;");
+        tree.visitDstName(MappedElementKind.FIELD, 0, "field_2");
+        tree.visitDstName(MappedElementKind.FIELD, 1, "other");
+        // A member without a descriptor.
+        tree.visitField("b", null);
+        tree.visitDstName(MappedElementKind.FIELD, 0, "field_3");
+        tree.visitDstName(MappedElementKind.FIELD, 1, "noDesc");
+
+        // A class that's only partially mapped.
+        tree.visitClass("b");
+        tree.visitDstName(MappedElementKind.CLASS, 0, "class_2");
+        tree.visitMethod("b", "(I)V");
+        tree.visitDstName(MappedElementKind.METHOD, 1, "namedOnly");
+
+        // A class without any mappings.
+        tree.visitClass("c");
+        tree.visitField("a", "I");
+        tree.visitEnd();
+
+        assertLookupsMatchTree(tree);
+    }
+
+    @Test
+    void lookupsMatchTreeForRandomMappings() throws IOException {
+        assertLookupsMatchTree(createRandomTree(200, 0));
+    }
+
+    @Test
+    void lazyCompletionMatchesEagerCompletion() throws IOException {
+        for (long seed = 0; seed < 4; seed++) {
+            MemoryMappingTree tree = createRandomTree(100, seed);
+
+            // Names from the completed namespaces are queried too, since lazy completion has to find them.
+            MemoryMappingTree completed = new MemoryMappingTree();
+            tree.accept(new MappingNsCompleter(completed, Map.of("intermediary", "official", "named", "official")));
+            List<Query> queries = createQueries(tree);
+            queries.addAll(createQueries(completed));
+
+            for (String from : NAMESPACES) {
+                for (String to : NAMESPACES) {
+                    Remapper expected = MappingTreeRemapper.builder(tree).namespaces(from, to).completeNamespaces().build();
+                    Map<String, Remapper> remappers = new LinkedHashMap<>();
+                    remappers.put("lazy", MappingTreeRemapper.builder(tree).namespaces(from, to).completeNamespaces().lazyCompletion(false).build());
+                    remappers.put("cached lazy", MappingTreeRemapper.builder(tree).namespaces(from, to).completeNamespaces().lazyCompletion(true).build());
+                    remappers.put("precomputed lazy", MappingTreeRemapper.builder(tree).namespaces(from, to).completeNamespaces().lazyCompletion(false).precompute().build());
+                    assertRemappersMatch(expected, remappers, queries, "seed " + seed + " from " + from + " to " + to);
+                }
+            }
+        }
+    }
+
+    private static void assertRemappersMatch(Remapper expected, Map<String, Remapper> remappers, List<Query> queries, String description) {
+        for (Query query : queries) {
+            String expectedResult = query.apply(expected);
+
+            // Each query is repeated, so that cached results are checked as well.
+            for (int i = 0; i < 2; i++) {
+                remappers.forEach((name, remapper) -> assertEquals(
+                    expectedResult,
+                    query.apply(remapper),
+                    () -> name + " lookup of " + query + " with " + description
+                ));
+            }
+        }
+    }
+
+    private void assertLookupsMatchTree(MemoryMappingTree tree) throws IOException {
+        CompactMappings compact = CompactMappings.of(tree);
+        Path file = tempDir.resolve("mappings.bin");
+        compact.write(file);
+        CompactMappings opened = CompactMappings.open(file);
+        List<Query> queries = createQueries(tree);
+
+        for (String from : NAMESPACES) {
+            for (String to : NAMESPACES) {
+                Remapper expected = MappingTreeRemapper.builder(tree).namespaces(from, to).build();
+                Map<String, Remapper> remappers = new LinkedHashMap<>();
+                remappers.put("precomputed", MappingTreeRemapper.builder(tree).namespaces(from, to).precompute().build());
+                remappers.put("compact", MappingTreeRemapper.builder(compact).namespaces(from, to).build());
+                remappers.put("precomputed compact", MappingTreeRemapper.builder(compact).namespaces(from, to).precompute().build());
+                remappers.put("opened compact", MappingTreeRemapper.builder(opened).namespaces(from, to).build());
+
+                for (Query query : queries) {
+                    String expectedResult = query.apply(expected);
+
+                    remappers.forEach((name, remapper) -> assertEquals(
+                        expectedResult,
+                        query.apply(remapper),
+                        () -> name + " lookup of " + query + " from " + from + " to " + to
+                    ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates queries for all names in all namespaces, and for names that aren't in the mappings.
+     */
+    private static List<Query> createQueries(MappingTreeView tree) {
+        List<Query> queries = new ArrayList<>();
+        queries.add(new Query(Query.Kind.CLASS, "missing", null, null));
+        queries.add(new Query(Query.Kind.CLASS, "java/lang/Object", null, null));
+
+        for (var c : tree.getClasses()) {
+            for (int ns = MappingTreeView.SRC_NAMESPACE_ID; ns < tree.getMaxNamespaceId(); ns++) {
+                String owner = c.getName(ns);
+                if (owner == null) continue;
+
+                queries.add(new Query(Query.Kind.CLASS, owner, null, null));
+                queries.add(new Query(Query.Kind.METHOD, owner, "missing", "()V"));
+                queries.add(new Query(Query.Kind.FIELD, owner, "missing", "I"));
+
+                for (var m : c.getMethods()) {
+                    String name = m.getName(ns);
+                    if (name == null) continue;
+
+                    queries.add(new Query(Query.Kind.METHOD, owner, name, m.getDesc(ns) != null ? m.getDesc(ns) : "()V"));
+                    queries.add(new Query(Query.Kind.METHOD, owner, name, "(Lmissing;)V"));
+                    queries.add(new Query(Query.Kind.METHOD, "missing", name, m.getDesc(ns) != null ? m.getDesc(ns) : "()V"));
+                }
+
+                for (var f : c.getFields()) {
+                    String name = f.getName(ns);
+                    if (name == null) continue;
+
+                    queries.add(new Query(Query.Kind.FIELD, owner, name, f.getDesc(ns) != null ? f.getDesc(ns) : "I"));
+                    queries.add(new Query(Query.Kind.FIELD, owner, name, "Lmissing;"));
+                    queries.add(new Query(Query.Kind.FIELD, owner, name, null));
+                    queries.add(new Query(Query.Kind.FIELD, "missing", name, f.getDesc(ns) != null ? f.getDesc(ns) : "I"));
+                }
+            }
+        }
+
+        return queries;
+    }
+
+    private static MemoryMappingTree createRandomTree(int classCount, long seed) {
+        Random random = new Random(seed);
+        MemoryMappingTree tree = new MemoryMappingTree();
+        tree.visitNamespaces("official", List.of("intermediary", "named"));
+
+        for (int i = 0; i < classCount; i++) {
+            tree.visitClass(Integer.toString(i, 36));
+            if (random.nextInt(8) != 0) tree.visitDstName(MappedElementKind.CLASS, 0, "class_" + i);
+            if (random.nextInt(4) != 0) tree.visitDstName(MappedElementKind.CLASS, 1, "pkg/Named" + i);
+
+            int memberCount = random.nextInt(10);
+            for (int j = 0; j < memberCount; j++) {
+                // Names repeat within a class, so there are overloads and fields that differ by descriptor.
+                String name = Integer.toString(random.nextInt(4), 36);
+                String descriptor = FIELD_DESCRIPTORS[random.nextInt(FIELD_DESCRIPTORS.length)];
+
+                if (random.nextBoolean()) {
+                    tree.visitMethod(name, "(" + descriptor + ")V");
+                    if (random.nextInt(4) != 0) tree.visitDstName(MappedElementKind.METHOD, 0, "method_" + i + "_" + j);
+                    if (random.nextInt(4) != 0) tree.visitDstName(MappedElementKind.METHOD, 1, "namedMethod" + j);
+                } else {
+                    tree.visitField(name, descriptor);
+                    if (random.nextInt(4) != 0) tree.visitDstName(MappedElementKind.FIELD, 0, "field_" + i + "_" + j);
+                    if (random.nextInt(4) != 0) tree.visitDstName(MappedElementKind.FIELD, 1, "namedField" + j);
+                }
+            }
+        }
+
+        tree.visitEnd();
+        return tree;
+    }
+
+    private record Query(Kind kind, String owner, String name, String descriptor) {
+        String apply(Remapper remapper) {
+            return switch (kind) {
+                case CLASS -> remapper.map(owner);
+                case METHOD -> remapper.mapMethodName(owner, name, descriptor);
+                case FIELD -> remapper.mapFieldName(owner, name, descriptor);
+            };
+        }
+
+        enum Kind {
+            CLASS, METHOD, FIELD
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.refmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link RefmapEntryAdapter#parse} agrees with the regex-based parser it replaced.
+ */
+class RefmapEntryAdapterTest {
+    private static final Pattern FIELD_PATTERN = Pattern.compile("(?:L([^;]+);)?(.+):(.+)");
+    private static final Pattern METHOD_PATTERN = Pattern.compile("(?:L([^;]+);)?(.+)(\\(.*\\).+)");
+    private static final String ALPHABET = "La;:()\n";
+    private static final int MAX_GENERATED_LENGTH = 6;
+
+    @Test
+    void parsesLikeRegexesForEdgeCases() {
+        List<String> inputs = List.of(
+            "", "L", "L;", "La;", "a", "net/minecraft/class_1",
+            "La;b:c", "b:c", ":c", "b:", ":", "::", "a::", "::b", "a:b:c", "La;:c", "La;b:", "L;b:c", "La;;b:c",
+            "La;b()V", "b()V", "()V", "La;()V", "La;b()", "La;b(", "b)V(", "a(b)c(d)e", "(a)b", "a(b)", "a((b))c",
+            "La;b:c(I)V", "La;b(I)V:c", "La;b:(I)V", "Lb(I)V;c:d",
+            "La;b\n:c", "La\n;b:c", "La;b(I)\nV", "a\r:b", "a\u0085:b", "a\u2028(I)V", "a:\u2029",
+            "Lnet/minecraft/class_1;method_1(ILnet/minecraft/class_2;)V",
+            "Lnet/minecraft/class_1;field_1:Lnet/minecraft/class_2;",
+            "Lnet/minecraft/class_1;<init>()V"
+        );
+
+        for (String input : inputs) {
+            assertParsesLikeRegexes(input);
+        }
+    }
+
+    @Test
+    void parsesLikeRegexesForAllShortInputs() {
+        forEachInput("", MAX_GENERATED_LENGTH, RefmapEntryAdapterTest::assertParsesLikeRegexes);
+    }
+
+    private static void forEachInput(String prefix, int remainingLength, Consumer<String> action) {
+        action.accept(prefix);
+        if (remainingLength == 0) return;
+
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            forEachInput(prefix + ALPHABET.charAt(i), remainingLength - 1, action);
+        }
+    }
+
+    private static void assertParsesLikeRegexes(String input) {
+        String message = "Parsed entry for '" + input.replace("\n", "\\n") + "'";
+        assertEquals(parseOrThrow(() -> parseWithRegexes(input)), parseOrThrow(() -> RefmapEntryAdapter.parse(input)), message);
+    }
+
+    /**
+     * {@return the parsed entry, or the class of the exception thrown while parsing}
+     * Entries without an owner can't be constructed, so both parsers must fail for them.
+     */
+    private static Object parseOrThrow(Supplier<RefmapEntry> parser) {
+        try {
+            return parser.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static RefmapEntry parseWithRegexes(String input) {
+        if (input.contains(":")) {
+            var matcher = FIELD_PATTERN.matcher(input);
+            if (matcher.matches()) {
+                return new RefmapEntry.FieldEntry(matcher.group(1), matcher.group(2), matcher.group(3));
+            }
+        }
+
+        if (input.contains("(")) {
+            var matcher = METHOD_PATTERN.matcher(input);
+            if (matcher.matches()) {
+                return new RefmapEntry.MethodEntry(matcher.group(1), matcher.group(2), matcher.group(3));
+            }
+        }
+
+        return new RefmapEntry.ClassEntry(input);
+    }
+}
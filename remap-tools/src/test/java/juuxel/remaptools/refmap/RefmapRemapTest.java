@@ -0,0 +1,139 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package juuxel.remaptools.refmap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Checks that the streaming and parallel refmap remapping paths agree with
+ * the sequential {@link Refmap#remap(Set, boolean, Remapper)}.
+ */
+class RefmapRemapTest {
+    private static final List<String> ENVIRONMENTS = List.of("named:intermediary", "searge", "notch");
+    private static final Remapper REMAPPER = new Remapper() {
+        @Override
+        public String map(String internalName) {
+            return internalName.startsWith("a/") ? "b/" + internalName.substring(2) : internalName;
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            return owner.startsWith("a/") ? name + "_" + owner.substring(2) : name;
+        }
+
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            return owner.startsWith("a/") ? name + "$" + owner.substring(2) : name;
+        }
+    };
+
+    @Test
+    void streamingRemapMatchesTreeRemap() throws IOException {
+        List<Set<String>> environmentSets = List.of(Set.of(), Set.of("named:intermediary"), Set.of("named:intermediary", "searge"), Set.of("missing"));
+
+        for (int seed = 0; seed < 4; seed++) {
+            String json = write(createRandomRefmap(new Random(seed)));
+
+            for (Set<String> environments : environmentSets) {
+                for (boolean remapDefault : new boolean[] { false, true }) {
+                    String message = "Seed " + seed + ", environments " + environments + ", default " + remapDefault;
+                    Refmap expected = Refmap.read(new StringReader(json)).remap(environments, remapDefault, REMAPPER);
+
+                    StringWriter streamed = new StringWriter();
+                    new StreamingRefmapRemapper(REMAPPER, environments, remapDefault).remap(new StringReader(json), streamed);
+
+                    assertEquals(expected, Refmap.read(new StringReader(streamed.toString())), message);
+                    assertEquals(JsonParser.parseString(write(expected)), JsonParser.parseString(streamed.toString()), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void streamingRemapCopiesUnknownProperties() throws IOException {
+        JsonObject input = JsonParser.parseString(write(createRandomRefmap(new Random(0)))).getAsJsonObject();
+        JsonElement extra = JsonParser.parseString("{\"list\": [1, \"La;b:c\", null], \"flag\": true}");
+        input.add("extra", extra);
+
+        StringWriter streamed = new StringWriter();
+        new StreamingRefmapRemapper(REMAPPER, Set.copyOf(ENVIRONMENTS), true).remap(new StringReader(input.toString()), streamed);
+
+        JsonObject output = JsonParser.parseString(streamed.toString()).getAsJsonObject();
+        assertEquals(extra, output.get("extra"));
+        assertNotEquals(input.get("mappings"), output.get("mappings"), "Default mappings were not remapped");
+    }
+
+    @Test
+    void parallelRemapMatchesSequentialRemap() {
+        for (int seed = 0; seed < 4; seed++) {
+            Refmap refmap = createRandomRefmap(new Random(seed));
+            Set<String> environments = Set.of("named:intermediary", "searge");
+            Refmap expected = refmap.remap(environments, true, REMAPPER);
+
+            // A threshold of 0 remaps every environment in parallel, and 1000 only the larger ones.
+            for (int threshold : new int[] { 0, 1, 1000, Refmap.DEFAULT_PARALLEL_THRESHOLD }) {
+                assertEquals(expected, refmap.remap(environments, true, REMAPPER, threshold), "Seed " + seed + ", threshold " + threshold);
+            }
+        }
+    }
+
+    private static String write(Refmap refmap) throws IOException {
+        StringWriter writer = new StringWriter();
+        refmap.write(writer);
+        return writer.toString();
+    }
+
+    private static Refmap createRandomRefmap(Random random) {
+        Map<String, Map<String, Map<String, RefmapEntry>>> data = new HashMap<>();
+
+        for (String environment : ENVIRONMENTS) {
+            data.put(environment, createRandomMixins(random, 1 + random.nextInt(40)));
+        }
+
+        return new Refmap(createRandomMixins(random, 1 + random.nextInt(40)), data);
+    }
+
+    private static Map<String, Map<String, RefmapEntry>> createRandomMixins(Random random, int mixinCount) {
+        Map<String, Map<String, RefmapEntry>> mixins = new HashMap<>();
+
+        for (int i = 0; i < mixinCount; i++) {
+            Map<String, RefmapEntry> entries = new HashMap<>();
+            int entryCount = random.nextInt(30);
+
+            for (int j = 0; j < entryCount; j++) {
+                String owner = (random.nextBoolean() ? "a/" : "c/") + "C" + random.nextInt(10);
+                String name = "m" + random.nextInt(5);
+                RefmapEntry entry = switch (random.nextInt(3)) {
+                    case 0 -> new RefmapEntry.ClassEntry(owner);
+                    case 1 -> new RefmapEntry.MethodEntry(owner, name, "(L" + owner + ";I)V");
+                    default -> new RefmapEntry.FieldEntry(owner, name, "L" + owner + ";");
+                };
+                entries.put("ref" + j, entry);
+            }
+
+            mixins.put("mixin/Mixin" + i, entries);
+        }
+
+        return mixins;
+    }
+}